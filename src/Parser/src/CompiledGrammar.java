@@ -0,0 +1,229 @@
+package Parser.src;
+
+import java.util.*;
+
+/**
+ * Compiled form of an LL(1) parsing table, for the parser's inner loop.
+ * Every grammar symbol is interned to an int id:
+ *   0 .. N-1      non-terminals (table row order)
+ *   N .. N+T-1    terminals (table column order, $ last)
+ *   N+T ..        symbols that only occur inside a longer right-hand side (e.g. a stray @)
+ * M[A, a] is a flat int[] of production ids (NO_PRODUCTION = empty entry) and each
+ * production's right-hand side is an int[] of symbol ids, empty for A -> @.
+ */
+public final class CompiledGrammar {
+
+    public static final int NO_PRODUCTION = -1;
+    public static final int UNKNOWN = -1; // id of an input symbol that is not in the grammar
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int nonTerminalCount;
+    private final int terminalCount; // table columns, including $
+    private final int eof;
+    private final int start;
+    private final int[] table; // nonTerminal * terminalCount + (terminal - nonTerminalCount)
+    private final int[] lhs;
+    private final int[][] rhs;
+    private final List<List<String>> productions; // as the table holds them
+    private final String[] productionText; // "A -> Y Z" or "A -> @", as the trace prints it
+
+    /**
+     * Compile a table as built by LL1ParsingTableConstructor
+     *
+     * @param parsingTable M[A][a], null for empty entries
+     * @param startSymbol  The grammar's start symbol
+     */
+    public CompiledGrammar(Map<String, Map<String, List<String>>> parsingTable, String startSymbol) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+
+        // Non-terminals, then every column (rows share them; $ was added last), then the rest
+        for (String nonTerminal : parsingTable.keySet()) {
+            intern(nonTerminal, ids, names);
+        }
+        this.nonTerminalCount = names.size();
+        for (Map<String, List<String>> row : parsingTable.values()) {
+            for (String terminal : row.keySet()) {
+                intern(terminal, ids, names);
+            }
+        }
+        intern("$", ids, names);
+        List<String> columns = new ArrayList<>(names.subList(nonTerminalCount, names.size()));
+        columns.remove("$");
+        columns.add("$");
+        for (int i = 0; i < columns.size(); i++) {
+            names.set(nonTerminalCount + i, columns.get(i));
+            ids.put(columns.get(i), nonTerminalCount + i);
+        }
+        this.terminalCount = columns.size();
+
+        // Productions: one id per distinct (A, α), shared by all the cells that hold it
+        Map<List<String>, Integer> productionIds = new HashMap<>();
+        List<Integer> lhs = new ArrayList<>();
+        List<int[]> rhs = new ArrayList<>();
+        List<List<String>> productions = new ArrayList<>();
+        this.table = new int[nonTerminalCount * terminalCount];
+        Arrays.fill(table, NO_PRODUCTION);
+
+        for (Map.Entry<String, Map<String, List<String>>> row : parsingTable.entrySet()) {
+            int A = ids.get(row.getKey());
+            for (Map.Entry<String, List<String>> cell : row.getValue().entrySet()) {
+                List<String> production = cell.getValue();
+                if (production == null) continue;
+
+                List<String> key = new ArrayList<>(production.size() + 1);
+                key.add(row.getKey());
+                key.addAll(production);
+                Integer id = productionIds.get(key);
+                if (id == null) {
+                    id = productions.size();
+                    productionIds.put(key, id);
+                    lhs.add(A);
+                    productions.add(production);
+                    if (isEpsilon(production)) {
+                        rhs.add(new int[0]);
+                    } else {
+                        int[] symbols = new int[production.size()];
+                        for (int i = 0; i < symbols.length; i++) {
+                            symbols[i] = intern(production.get(i), ids, names);
+                        }
+                        rhs.add(symbols);
+                    }
+                }
+                table[A * terminalCount + ids.get(cell.getKey()) - nonTerminalCount] = id;
+            }
+        }
+
+        this.start = intern(startSymbol, ids, names);
+        this.eof = nonTerminalCount + terminalCount - 1;
+        this.names = names.toArray(new String[0]);
+        this.ids = ids;
+        this.lhs = new int[lhs.size()];
+        this.rhs = rhs.toArray(new int[0][]);
+        this.productions = productions;
+        for (int p = 0; p < this.lhs.length; p++) {
+            this.lhs[p] = lhs.get(p);
+        }
+        this.productionText = productionTexts(this.names, this.lhs, this.rhs, productions);
+    }
+
+    /**
+     * Restore a compiled grammar from its parts (see GrammarCache)
+     */
+    CompiledGrammar(String[] names, int nonTerminalCount, int terminalCount, int start,
+                    int[] table, int[] lhs, int[][] rhs, List<List<String>> productions) {
+        this.names = names;
+        this.ids = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+        this.nonTerminalCount = nonTerminalCount;
+        this.terminalCount = terminalCount;
+        this.eof = nonTerminalCount + terminalCount - 1;
+        this.start = start;
+        this.table = table;
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.productions = productions;
+        this.productionText = productionTexts(names, lhs, rhs, productions);
+    }
+
+    private static String[] productionTexts(String[] names, int[] lhs, int[][] rhs,
+                                            List<List<String>> productions) {
+        String[] texts = new String[lhs.length];
+        for (int p = 0; p < texts.length; p++) {
+            texts[p] = names[lhs[p]] + " -> "
+                    + (rhs[p].length == 0 ? "@" : String.join(" ", productions.get(p)));
+        }
+        return texts;
+    }
+
+    private static int intern(String symbol, Map<String, Integer> ids, List<String> names) {
+        Integer id = ids.get(symbol);
+        if (id == null) {
+            id = names.size();
+            ids.put(symbol, id);
+            names.add(symbol);
+        }
+        return id;
+    }
+
+    private static boolean isEpsilon(List<String> production) {
+        return production.isEmpty() || (production.size() == 1 && production.get(0).equals("@"));
+    }
+
+    /**
+     * Rebuild the table in LL1ParsingTableConstructor's form: rows in non-terminal order,
+     * every column in each row, null for empty entries
+     */
+    public Map<String, Map<String, List<String>>> toParsingTable() {
+        Map<String, Map<String, List<String>>> parsingTable = new LinkedHashMap<>();
+        for (int A = 0; A < nonTerminalCount; A++) {
+            Map<String, List<String>> row = new LinkedHashMap<>();
+            for (int column = 0; column < terminalCount; column++) {
+                int p = table[A * terminalCount + column];
+                row.put(names[nonTerminalCount + column],
+                        p == NO_PRODUCTION ? null : new ArrayList<>(productions.get(p)));
+            }
+            parsingTable.put(names[A], row);
+        }
+        return parsingTable;
+    }
+
+    /**
+     * Production id in M[nonTerminal, terminal], or NO_PRODUCTION
+     */
+    public int production(int nonTerminal, int terminal) {
+        int column = terminal - nonTerminalCount;
+        if (column < 0 || column >= terminalCount) return NO_PRODUCTION;
+        return table[nonTerminal * terminalCount + column];
+    }
+
+    /**
+     * Intern one line of input, UNKNOWN for tokens the grammar does not know
+     */
+    public int[] intern(List<String> input) {
+        int[] symbols = new int[input.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = id(input.get(i));
+        }
+        return symbols;
+    }
+
+    public int id(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public String name(int symbol) { return names[symbol]; }
+
+    public boolean isNonTerminal(int symbol) {
+        return symbol >= 0 && symbol < nonTerminalCount;
+    }
+
+    /**
+     * Terminals with an entry in row nonTerminal, in table column order
+     */
+    public List<String> expectedTerminals(int nonTerminal) {
+        List<String> expected = new ArrayList<>();
+        for (int column = 0; column < terminalCount; column++) {
+            if (table[nonTerminal * terminalCount + column] != NO_PRODUCTION) {
+                expected.add(names[nonTerminalCount + column]);
+            }
+        }
+        return expected;
+    }
+
+    int[] getTable() { return table; }
+    public int getEof() { return eof; }
+    public int getStart() { return start; }
+    public int getSymbolCount() { return names.length; }
+    public int getNonTerminalCount() { return nonTerminalCount; }
+    public int getTerminalCount() { return terminalCount; }
+    public int getProductionCount() { return rhs.length; }
+    public int lhs(int production) { return lhs[production]; }
+    public int[] rhs(int production) { return rhs[production]; }
+    public List<String> getProduction(int production) { return productions.get(production); }
+    public String productionText(int production) { return productionText[production]; }
+}
@@ -4,16 +4,16 @@ import java.util.*;
 
 public class ErrorHandler {
 
-    private Map<String, Map<String, List<String>>> parsingTable;
+    private CompiledGrammar grammar;
     private Map<String, Set<String>> followSets;
-    private List<Parser.ParseStep> steps;
+    private ParseTrace steps; // null: steps are not recorded
     private int stepNumber;
 
-    public ErrorHandler(Map<String, Map<String, List<String>>> parsingTable,
+    public ErrorHandler(CompiledGrammar grammar,
                         Map<String, Set<String>> followSets,
-                        List<Parser.ParseStep> steps,
+                        ParseTrace steps,
                         int stepNumber) {
-        this.parsingTable = parsingTable;
+        this.grammar = grammar;
         this.followSets = followSets;
         this.steps = steps;
         this.stepNumber = stepNumber;
@@ -25,18 +25,16 @@ public class ErrorHandler {
     // Missing Symbol: expected terminal not found in input — skip bad token or pop if end of input
     // Unexpected Symbol: terminal on stack but different terminal in input — skip or pop to recover
     // Premature End: input exhausted but stack still has symbols — pop remaining stack
+    // row: id of the NT whose table row is empty for a, or CompiledGrammar.UNKNOWN
     public ParseError classifyError(String X, String a, int lineNumber,
-                                    int ip, Map<String, List<String>> row) {
+                                    int ip, int row) {
         String errorMsg;
         ParseError.ErrorType type;
         String expected;
 
-        if (row != null) {
+        if (row != CompiledGrammar.UNKNOWN) {
             // Empty Table Entry: NT on stack with no production for current token
-            List<String> validTerminals = new ArrayList<>();
-            for (Map.Entry<String, List<String>> entry : row.entrySet()) {
-                if (entry.getValue() != null) validTerminals.add(entry.getKey());
-            }
+            List<String> validTerminals = grammar.expectedTerminals(row);
             errorMsg = String.format(
                     "Empty Table Entry: No production in M[%s, '%s']", X, a);
             type = ParseError.ErrorType.EMPTY_TABLE_ENTRY;
@@ -49,7 +47,7 @@ public class ErrorHandler {
             type = ParseError.ErrorType.PREMATURE_END;
             expected = X;
 
-        } else if (parsingTable.containsKey(a)) {
+        } else if (grammar.isNonTerminal(grammar.id(a))) {
             // Unexpected Symbol: terminal on stack but non-terminal in input
             errorMsg = String.format(
                     "Unexpected Symbol: '%s' appears where terminal '%s' expected", a, X);
@@ -73,37 +71,32 @@ public class ErrorHandler {
      *   if a == $ or a ∈ Follow(X): pop X
      *   else: scan (skip a)
      */
-    public boolean recover(Stack stack, List<String> input, int[] ip,
+    // symbols: input interned in the stack's grammar
+    public boolean recover(Stack stack, List<String> input, int[] symbols, int[] ip,
                            int[] stepRef, int lineNumber, Tree tree) {
 
-        while (!stack.isEmpty() && !stack.top().equals("$")) {
-            String X = stack.top();
-            String a = input.get(ip[0]);
+        while (!stack.isEmpty() && stack.topId() != grammar.getEof()) {
+            int X = stack.topId();
+            int a = symbols[ip[0]];
 
             // Resynchronized — valid table entry exists for NT
-            if (parsingTable.containsKey(X) && parsingTable.get(X).get(a) != null) {
-                return true;
-            }
-
-            // Resynchronized — terminal on stack matches input
-            if (!parsingTable.containsKey(X) && X.equals(a)) {
+            if (grammar.isNonTerminal(X)) {
+                if (grammar.production(X, a) != CompiledGrammar.NO_PRODUCTION) return true;
+            } else if (X == a) {
+                // Resynchronized — terminal on stack matches input
                 return true;
             }
 
-            Set<String> followX = followSets.get(X);
-            boolean inFollow = followX != null && followX.contains(a);
+            Set<String> followX = followSets.get(grammar.name(X));
+            boolean inFollow = followX != null && followX.contains(input.get(ip[0]));
 
-            if (a.equals("$") || inFollow) {
-                String popped = stack.pop();
+            if (a == grammar.getEof() || inFollow) {
+                stack.pop();
                 tree.popError();
-                addStep(++stepRef[0], stack.copy(),
-                        getRemainingInput(input, ip[0]),
-                        "Recovery: popped " + popped);
+                addStep(++stepRef[0], ParseTrace.POP, X, ip[0], stack);
             } else {
-                tree.skipToken(a);
-                addStep(++stepRef[0], stack.copy(),
-                        getRemainingInput(input, ip[0]),
-                        "Recovery: skipping '" + a + "'");
+                tree.skipToken(input.get(ip[0]));
+                addStep(++stepRef[0], ParseTrace.SKIP, a, ip[0], stack);
                 ip[0]++;
             }
         }
@@ -123,14 +116,8 @@ public class ErrorHandler {
         return error;
     }
 
-    private String getRemainingInput(List<String> input, int ip) {
-        if (ip >= input.size()) return "";
-        return String.join(" ", input.subList(ip, input.size()));
-    }
-
-    private void addStep(int stepNumber, Stack stack,
-                         String remainingInput, String action) {
-        steps.add(new Parser.ParseStep(stepNumber, stack, remainingInput, action));
+    private void addStep(int stepNumber, int action, int argument, int ip, Stack stack) {
+        if (steps != null) steps.add(stepNumber, action, argument, ip, stack.size());
     }
 
     public static class ParseError {
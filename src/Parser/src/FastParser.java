@@ -0,0 +1,164 @@
+package Parser.src;
+
+import java.util.*;
+
+/**
+ * Fast-path LL(1) driver for batch parsing.
+ * Runs the same algorithm and recovery as Parser.parse on a reusable int[] stack of
+ * interned symbol ids, but records no trace and builds no parse tree: a parse allocates
+ * only its ParseResult (and a ParseError per error), and nothing is printed.
+ * Results carry the same success flag and errors as Parser.parse, with no steps and no tree.
+ */
+public class FastParser {
+
+    private final CompiledGrammar grammar;
+    private final BitSet follow; // symbol * terminalCount + column: terminal in FOLLOW(symbol)
+    private final ErrorHandler errorHandler;
+
+    // reused across parses, grown on demand
+    private int[] stack = new int[64];
+    private int[] symbols = new int[64];
+    private int sp;
+    private int ip;
+
+    public FastParser(CompiledGrammar grammar, Map<String, Set<String>> followSets) {
+        this.grammar = grammar;
+        this.errorHandler = new ErrorHandler(grammar, followSets, null, 0);
+
+        int terminals = grammar.getTerminalCount();
+        int firstTerminal = grammar.getNonTerminalCount();
+        this.follow = new BitSet(grammar.getSymbolCount() * terminals);
+        for (int symbol = 0; symbol < grammar.getSymbolCount(); symbol++) {
+            Set<String> followX = followSets.get(grammar.name(symbol));
+            if (followX == null) continue;
+            for (String terminal : followX) {
+                int column = grammar.id(terminal) - firstTerminal;
+                if (column >= 0 && column < terminals) follow.set(symbol * terminals + column);
+            }
+        }
+    }
+
+    public Parser.ParseResult parse(List<String> input, int lineNumber) {
+        int n = input.size();
+        if (symbols.length < n + 1) symbols = new int[Math.max(n + 1, symbols.length * 2)];
+        for (int i = 0; i < n; i++) {
+            symbols[i] = grammar.id(input.get(i));
+        }
+        int eof = grammar.getEof();
+        symbols[n] = eof;
+
+        List<ErrorHandler.ParseError> errors = new ArrayList<>(0);
+        boolean success = false;
+        sp = 0;
+        ip = 0;
+        push(eof);
+        push(grammar.getStart());
+
+        while (sp > 0) {
+            int X = stack[sp - 1];
+            int a = symbols[ip];
+
+            // Case 1: X = a = $ → Accept
+            if (X == eof && a == eof) {
+                success = true;
+                break;
+            }
+
+            // Case 2: X = a (terminal match) — consume both
+            if (X == a) {
+                sp--;
+                ip++;
+                continue;
+            }
+
+            // Case 3: X is non-terminal — look up table and expand, or recover if empty
+            if (grammar.isNonTerminal(X)) {
+                int production = grammar.production(X, a);
+                if (production == CompiledGrammar.NO_PRODUCTION) {
+                    errors.add(errorHandler.classifyError(
+                            grammar.name(X), token(input, ip), lineNumber, ip, X));
+                    if (!recover()) break;
+                    continue;
+                }
+                sp--;
+                int[] rhs = grammar.rhs(production);
+                for (int i = rhs.length - 1; i >= 0; i--) {
+                    push(rhs[i]);
+                }
+                continue;
+            }
+
+            // Case 4: X is terminal but X != a — report error, then pop X (a=$) or skip a
+            errors.add(errorHandler.classifyError(
+                    grammar.name(X), token(input, ip), lineNumber, ip, CompiledGrammar.UNKNOWN));
+            if (a == eof) {
+                sp--;
+            } else {
+                ip++;
+            }
+        }
+
+        // Premature end check
+        if (!success && sp > 0 && !(sp == 1 && stack[0] == eof)) {
+            errors.add(errorHandler.classifyError(
+                    grammar.name(stack[sp - 1]), "$", lineNumber, ip, CompiledGrammar.UNKNOWN));
+        }
+
+        return new Parser.ParseResult(success, Collections.emptyList(), errors,
+                String.join(" ", input), lineNumber, null);
+    }
+
+    /**
+     * Same resynchronization as ErrorHandler.recover, without trace steps:
+     * while M[X, a] is empty, pop X if a == $ or a ∈ Follow(X), else skip a
+     */
+    private boolean recover() {
+        int eof = grammar.getEof();
+        int terminals = grammar.getTerminalCount();
+        int firstTerminal = grammar.getNonTerminalCount();
+
+        while (sp > 0 && stack[sp - 1] != eof) {
+            int X = stack[sp - 1];
+            int a = symbols[ip];
+
+            if (grammar.isNonTerminal(X)) {
+                if (grammar.production(X, a) != CompiledGrammar.NO_PRODUCTION) return true;
+            } else if (X == a) {
+                return true;
+            }
+
+            int column = a - firstTerminal;
+            boolean inFollow = column >= 0 && column < terminals && follow.get(X * terminals + column);
+            if (a == eof || inFollow) {
+                sp--;
+            } else {
+                ip++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse every line like Parser.parseAll (skipping empty and # lines), without printing
+     */
+    public List<Parser.ParseResult> parseAll(List<List<String>> inputs) {
+        List<Parser.ParseResult> results = new ArrayList<>(inputs.size());
+        int lineNumber = 1;
+        for (List<String> input : inputs) {
+            if (!input.isEmpty() && !input.get(0).startsWith("#")) {
+                results.add(parse(input, lineNumber));
+            }
+            lineNumber++;
+        }
+        return results;
+    }
+
+    private void push(int symbol) {
+        if (sp == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[sp++] = symbol;
+    }
+
+    private static String token(List<String> input, int ip) {
+        return ip < input.size() ? input.get(ip) : "$";
+    }
+}
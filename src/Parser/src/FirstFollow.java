@@ -6,103 +6,42 @@ import java.util.*;
 
 public class FirstFollow {
 
-     //  --------------------------------- FIRST SETS ---------------------------------------
-
-     /*
-     * Algorithm:
-     *   Initialize First(A) = {} for all non-terminals A.
-     *   while changes occur:
-     *     for each production A → X1 X2 ... Xn:
-     *       k = 1; Continue = true
-     *       while Continue and k <= n:
-     *         add First(Xk) - {@} to First(A)
-     *         if @ not in First(Xk): Continue = false
-     *         k++
-     *       if Continue == true:        // @ survived through all Xk
-     *         add @ to First(A)
-     *
+    /*
+     * Both sets are computed over interned symbols instead of re-running every production
+     * until nothing changes:
+     *   - non-terminals get ids 0..N-1 (grammar order), terminals ids 0..T-1 ($ first, then
+     *     in order of first appearance in the productions); @ is not a symbol, it is dropped
+     *     from right-hand sides and recorded as nullable(A)
+     *   - FIRST and FOLLOW sets are BitSets over terminal ids
+     *   - each set is F(x) = F'(x) ∪ ⋃ { F(y) | x R y }, solved in one pass over the
+     *     relation R with DeRemer & Pennello's digraph algorithm (Tarjan SCCs: a cycle of
+     *     non-terminals shares one set, every edge is unioned once)
+     * The maps returned list each set's terminals in id order, @ last.
      */
-    public static Map<String, Set<String>> constructFirstSets(CFG cfg) {
-        Map<String, List<List<String>>> grammar = cfg.getAllProductions();
-        Set<String> nonTerminals = grammar.keySet();
-
-        // Initialize First(A) = {} for every non-terminal
-        Map<String, Set<String>> first = new LinkedHashMap<>();
-        for (String nt : nonTerminals) {
-            first.put(nt, new LinkedHashSet<>());
-        }
-
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-
-            for (Map.Entry<String, List<List<String>>> entry : grammar.entrySet()) {
-                String A = entry.getKey();
-                Set<String> firstA = first.get(A);
-
-                for (List<String> production : entry.getValue()) {
 
-                    // if has @ production, add @ to First(A)
-                    if (production.isEmpty()
-                            || (production.size() == 1
-                            && isEpsilon(production.get(0)))) {
-                        if (firstA.add("@"))
-                            changed = true;
-                        continue;
-                    }
-
-                    int k = 0;
-                    boolean cont = true;
-
-                    // A->X1 X2 ... Xn
-                    while (cont && k < production.size()) {
-                        String Xk = production.get(k);
-
-                        Set<String> firstXk = firstOf(Xk, first, nonTerminals);
-
-                        // add First(Xk) - {@} to First(A)
-                        for (String sym : firstXk) {
-                            if (!sym.equals("@")) {
-                                if (firstA.add(sym)) changed = true;
-                            }
-                        }
-
-                        // if First(Xk) has @, look at k+1
-                        if (!firstXk.contains("@")) {
-                            cont = false;
-                        }
+    //  --------------------------------- FIRST SETS ---------------------------------------
 
-                        k++;
-                    }
-
-                    // if we consumed all symbols and @ survived, add @ to First(A)
-                    if (cont) {
-                        if (firstA.add("@")) changed = true;
-                    }
-                }
-            }
-        }
-
-        return Collections.unmodifiableMap(first);
-    }
-
-    /**
-     * Returns the FIRST set of a single symbol Xk.
-     *   - If Xk is a non-terminal: return the currently computed First(Xk)
-     *   - If Xk is "@": return {\@}
-     *   - Otherwise (terminal): return {Xk}
+    /*
+     * Algorithm:
+     *   nullable: a production A → X1 ... Xn counts its symbols not yet known nullable
+     *     (@ productions start at 0, terminals never reach it); when a count drops to 0
+     *     A is nullable, and every production using A is decremented (worklist)
+     *   First'(A) = { a | A → X1 ... Xk-1 a ... with X1 ... Xk-1 nullable }
+     *   A R B     iff   A → X1 ... Xk-1 B ... with X1 ... Xk-1 nullable
+     *   First(A)  = First'(A) ∪ First(B) for all A R B,  plus @ if A is nullable
      */
-    private static Set<String> firstOf(String symbol,
-                                       Map<String, Set<String>> first,
-                                       Set<String> nonTerminals) {
-        if (isEpsilon(symbol)) {
-            return Collections.singleton("@");
-        }
-        if (nonTerminals.contains(symbol)) {
-            return first.get(symbol);
+    public static Map<String, Set<String>> constructFirstSets(CFG cfg) {
+        Symbols symbols = new Symbols(cfg);
+        boolean[] nullable = symbols.nullable();
+        BitSet[] first = symbols.firstSets(nullable);
+
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        for (int A = 0; A < symbols.nonTerminals.size(); A++) {
+            Set<String> firstA = symbols.toSet(first[A]);
+            if (nullable[A]) firstA.add("@");
+            result.put(symbols.nonTerminals.get(A), firstA);
         }
-        // terminal
-        return Collections.singleton(symbol);
+        return Collections.unmodifiableMap(result);
     }
 
     private static boolean isEpsilon(String symbol) {
@@ -121,18 +60,13 @@ public class FirstFollow {
 
 
      /* Algorithm:
-     *   Follow(start) = { $ }
-     *   Follow(A)     = {}   for all other non-terminals A
-     *
-     *   while changes occur:
-     *     for each production A → X1 X2 ... Xn:
-     *       for each Xi that is a non-terminal:
-     *         compute First(Xi+1 Xi+2 ... Xn)
-     *         add First(trailer) - {@} to Follow(Xi)
-     *         if @ ∈ First(trailer):
-     *           add Follow(A) to Follow(Xi)
-     *         (if i == n the trailer is empty, so First(trailer) = {@},
-     *          which means Follow(A) is always added for the last symbol)
+     *   for each production A → X1 X2 ... Xn, scanning right to left with
+     *   trailer = First(Xi+1 ... Xn):
+     *     for each Xi that is a non-terminal:
+     *       Follow'(Xi) ⊇ First(trailer) - {@}
+     *       Xi R A          if @ ∈ First(trailer)   (always for the last symbol)
+     *   Follow'(start) ⊇ { $ }
+     *   Follow(X) = Follow'(X) ∪ Follow(A) for all X R A
      *
      */
     public static Map<String, Set<String>> constructFollowSets(
@@ -145,65 +79,62 @@ public class FirstFollow {
             start = cfg.getAllProductions().keySet().iterator().next();
         }
 
-        Map<String, List<List<String>>> grammar = cfg.getAllProductions();
-        Set<String> nonTerminals = grammar.keySet();
-
-        // Initialise
-        Map<String, Set<String>> follow = new LinkedHashMap<>();
-        for (String nt : nonTerminals) {
-            follow.put(nt, new LinkedHashSet<>());
+        Symbols symbols = new Symbols(cfg);
+        int nonTerminals = symbols.nonTerminals.size();
+
+        // First sets as given (they may not come from constructFirstSets)
+        boolean[] nullable = new boolean[nonTerminals];
+        BitSet[] first = new BitSet[nonTerminals];
+        for (int A = 0; A < nonTerminals; A++) {
+            Set<String> firstA = firstSets.get(symbols.nonTerminals.get(A));
+            first[A] = new BitSet();
+            if (firstA == null) continue;
+            for (String terminal : firstA) {
+                if (isEpsilon(terminal)) nullable[A] = true;
+                else first[A].set(symbols.terminal(terminal));
+            }
         }
-        follow.get(start).add("$");
-
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-
-            // For each production A → X1 X2 ... Xn
-            for (Map.Entry<String, List<List<String>>> entry : grammar.entrySet()) {
-                String A = entry.getKey();
-
-                for (List<String> production : entry.getValue()) {
-
-                    // Skip pure @ productions — no non-terminals to process
-                    if (production.isEmpty()
-                            || (production.size() == 1 && isEpsilon(production.get(0)))) {
-                        continue;
-                    }
-
-                    int n = production.size();
-
-                    for (int i = 0; i < n; i++) {
-                        // update follow set of Xi
-                        String Xi = production.get(i);
-
-                        // we only update Follow sets for non-terminals
-                        if (!nonTerminals.contains(Xi)) continue;
 
-                        Set<String> followXi = follow.get(Xi);
-
-                        // Compute trailer = First(Xi+1 ... Xn)
-                        // If i == n-1 (Xi is the last symbol), trailer is empty so First = {@}
-                        Set<String> trailerFirst = firstOfString(
-                                production.subList(i + 1, n), firstSets, nonTerminals);
-
-                        // Add First(trailer) - {@} to Follow(Xi)
-                        for (String sym : trailerFirst) {
-                            if (!sym.equals("@")) {
-                                if (followXi.add(sym)) changed = true;
-                            }
-                        }
-
-                        // If @ ∈ First(trailer), add Follow(A) to Follow(Xi)
-                        if (trailerFirst.contains("@")) {
-                            if (followXi.addAll(follow.get(A))) changed = true;
-                        }
-                    }
+        BitSet[] follow = new BitSet[nonTerminals];
+        List<List<Integer>> relation = new ArrayList<>(nonTerminals);
+        for (int A = 0; A < nonTerminals; A++) {
+            follow[A] = new BitSet();
+            relation.add(new ArrayList<>());
+        }
+        follow[symbols.nonTerminalIds.get(start)].set(symbols.terminal("$"));
+
+        for (int p = 0; p < symbols.lhs.length; p++) {
+            int A = symbols.lhs[p];
+            int[] rhs = symbols.rhs[p];
+            BitSet trailer = new BitSet();
+            boolean trailerNullable = true;
+
+            for (int i = rhs.length - 1; i >= 0; i--) {
+                int Xi = rhs[i];
+                if (Xi < 0) {
+                    // terminal: First(trailer) is just this terminal from here on
+                    trailer.clear();
+                    trailer.set(~Xi);
+                    trailerNullable = false;
+                    continue;
+                }
+                follow[Xi].or(trailer);
+                if (trailerNullable) relation.get(Xi).add(A);
+                if (!nullable[Xi]) {
+                    trailer.clear();
+                    trailerNullable = false;
                 }
+                trailer.or(first[Xi]);
             }
         }
 
-        return Collections.unmodifiableMap(follow);
+        digraph(toArrays(relation), follow);
+
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        for (int A = 0; A < nonTerminals; A++) {
+            result.put(symbols.nonTerminals.get(A), symbols.toSet(follow[A]));
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     // -----------------------------------------------------------------------
@@ -211,41 +142,193 @@ public class FirstFollow {
     // -----------------------------------------------------------------------
 
     /**
-     * Computes First(Y1 Y2 ... Ym) for a list of symbols.
-     * Stops at Yi where @ is not in First(Yi).
-     * Returns {\@} for an empty list (the trailer after the last symbol).
+     * The grammar with interned symbols: non-terminal X is X, terminal t is ~t (negative)
      */
-    private static Set<String> firstOfString(
-            List<String> symbols,
-            Map<String, Set<String>> firstSets,
-            Set<String> nonTerminals) {
-
-        Set<String> result = new LinkedHashSet<>();
+    private static class Symbols {
+        final List<String> nonTerminals = new ArrayList<>();
+        final Map<String, Integer> nonTerminalIds = new HashMap<>();
+        final List<String> terminals = new ArrayList<>();
+        final Map<String, Integer> terminalIds = new HashMap<>();
+        final int[] lhs;
+        final int[][] rhs;
+
+        Symbols(CFG cfg) {
+            Map<String, List<List<String>>> grammar = cfg.getAllProductions();
+            for (String nt : grammar.keySet()) {
+                nonTerminalIds.put(nt, nonTerminals.size());
+                nonTerminals.add(nt);
+            }
+            terminal("$");
 
-        if (symbols.isEmpty()) {
-            result.add("@");
-            return result;
+            List<int[]> productions = new ArrayList<>();
+            List<Integer> lefts = new ArrayList<>();
+            for (Map.Entry<String, List<List<String>>> entry : grammar.entrySet()) {
+                int A = nonTerminalIds.get(entry.getKey());
+                for (List<String> production : entry.getValue()) {
+                    int[] symbols = new int[production.size()];
+                    int n = 0;
+                    for (String symbol : production) {
+                        if (isEpsilon(symbol)) continue;
+                        Integer nt = nonTerminalIds.get(symbol);
+                        symbols[n++] = nt != null ? nt : ~terminal(symbol);
+                    }
+                    lefts.add(A);
+                    productions.add(Arrays.copyOf(symbols, n));
+                }
+            }
+            this.lhs = new int[lefts.size()];
+            for (int p = 0; p < lhs.length; p++) lhs[p] = lefts.get(p);
+            this.rhs = productions.toArray(new int[0][]);
         }
 
-        boolean allNullable = true;
+        int terminal(String symbol) {
+            Integer id = terminalIds.get(symbol);
+            if (id == null) {
+                id = terminals.size();
+                terminalIds.put(symbol, id);
+                terminals.add(symbol);
+            }
+            return id;
+        }
 
-        for (String sym : symbols) {
-            Set<String> firstSym = firstOf(sym, firstSets, nonTerminals);
+        boolean[] nullable() {
+            int nonTerminalCount = nonTerminals.size();
+            boolean[] nullable = new boolean[nonTerminalCount];
+            int[] remaining = new int[rhs.length];
+            List<List<Integer>> uses = new ArrayList<>(nonTerminalCount); // productions per symbol
+            for (int A = 0; A < nonTerminalCount; A++) uses.add(new ArrayList<>());
+
+            int[] worklist = new int[nonTerminalCount];
+            int size = 0;
+            for (int p = 0; p < rhs.length; p++) {
+                for (int X : rhs[p]) {
+                    if (X < 0) {
+                        remaining[p] = -1; // has a terminal: never nullable
+                        break;
+                    }
+                    remaining[p]++;
+                }
+                if (remaining[p] > 0) {
+                    for (int X : rhs[p]) uses.get(X).add(p);
+                } else if (remaining[p] == 0 && !nullable[lhs[p]]) {
+                    nullable[lhs[p]] = true;
+                    worklist[size++] = lhs[p];
+                }
+            }
+            while (size > 0) {
+                int B = worklist[--size];
+                for (int p : uses.get(B)) {
+                    if (--remaining[p] == 0 && !nullable[lhs[p]]) {
+                        nullable[lhs[p]] = true;
+                        worklist[size++] = lhs[p];
+                    }
+                }
+            }
+            return nullable;
+        }
 
-            // Add everything except @
-            for (String s : firstSym) {
-                if (!s.equals("@")) result.add(s);
+        BitSet[] firstSets(boolean[] nullable) {
+            int nonTerminalCount = nonTerminals.size();
+            BitSet[] first = new BitSet[nonTerminalCount];
+            List<List<Integer>> relation = new ArrayList<>(nonTerminalCount);
+            for (int A = 0; A < nonTerminalCount; A++) {
+                first[A] = new BitSet();
+                relation.add(new ArrayList<>());
             }
+            for (int p = 0; p < rhs.length; p++) {
+                int A = lhs[p];
+                for (int X : rhs[p]) {
+                    if (X < 0) {
+                        first[A].set(~X);
+                        break;
+                    }
+                    relation.get(A).add(X);
+                    if (!nullable[X]) break;
+                }
+            }
+            digraph(toArrays(relation), first);
+            return first;
+        }
 
-            if (!firstSym.contains("@")) {
-                // This symbol is not nullable — @ cannot propagate further
-                allNullable = false;
-                break;
+        Set<String> toSet(BitSet bits) {
+            Set<String> set = new LinkedHashSet<>();
+            for (int t = bits.nextSetBit(0); t >= 0; t = bits.nextSetBit(t + 1)) {
+                set.add(terminals.get(t));
             }
+            return set;
         }
+    }
 
-        if (allNullable) result.add("@");
-        return result;
+    private static int[][] toArrays(List<List<Integer>> relation) {
+        int[][] arrays = new int[relation.size()][];
+        for (int x = 0; x < arrays.length; x++) {
+            List<Integer> successors = relation.get(x);
+            arrays[x] = new int[successors.size()];
+            for (int i = 0; i < arrays[x].length; i++) arrays[x][i] = successors.get(i);
+        }
+        return arrays;
+    }
+
+    /**
+     * DeRemer & Pennello's digraph: sets[x] = sets[x] ∪ sets[y] for every x R y, transitively.
+     * Tarjan's SCC traversal, iterative so long chains of non-terminals cannot overflow the
+     * call stack; the members of a cycle end up sharing their root's BitSet, which is not
+     * modified once the cycle is complete.
+     */
+    private static void digraph(int[][] relation, BitSet[] sets) {
+        final int done = Integer.MAX_VALUE;
+        int n = sets.length;
+        int[] depth = new int[n]; // 0 = not visited, done = SCC complete, else lowest depth reached
+        int[] stack = new int[n];
+        int sp = 0;
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int[] callDepth = new int[n];
+        int csp = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (depth[root] != 0) continue;
+            stack[sp++] = root;
+            depth[root] = sp;
+            callNode[csp] = root;
+            callEdge[csp] = 0;
+            callDepth[csp++] = sp;
+
+            while (csp > 0) {
+                int x = callNode[csp - 1];
+                int[] successors = relation[x];
+                if (callEdge[csp - 1] < successors.length) {
+                    int y = successors[callEdge[csp - 1]++];
+                    if (depth[y] == 0) {
+                        stack[sp++] = y;
+                        depth[y] = sp;
+                        callNode[csp] = y;
+                        callEdge[csp] = 0;
+                        callDepth[csp++] = sp;
+                    } else {
+                        depth[x] = Math.min(depth[x], depth[y]);
+                        sets[x].or(sets[y]);
+                    }
+                    continue;
+                }
+
+                // x is finished: pop its SCC if it is the root, then update the caller
+                if (depth[x] == callDepth[csp - 1]) {
+                    int top;
+                    do {
+                        top = stack[--sp];
+                        depth[top] = done;
+                        sets[top] = sets[x];
+                    } while (top != x);
+                }
+                csp--;
+                if (csp > 0) {
+                    int caller = callNode[csp - 1];
+                    depth[caller] = Math.min(depth[caller], depth[x]);
+                    sets[caller].or(sets[x]);
+                }
+            }
+        }
     }
 
     // -----------------------------------------------------------------------
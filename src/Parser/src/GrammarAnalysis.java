@@ -0,0 +1,72 @@
+package Parser.src;
+
+import Parser.src.Grammar.CFG;
+import Parser.src.Grammar.CFGParser;
+import Parser.src.Grammar.LeftFactor;
+import Parser.src.Grammar.LeftRecursionRemover;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything derived from a grammar file before parsing: the grammar as read and after each
+ * transformation, the FIRST/FOLLOW sets and the LL(1) table. Built by analyze(), or restored
+ * by GrammarCache without running any of the analysis again.
+ */
+public class GrammarAnalysis {
+
+    private final CFG cfg;
+    private final CFG noLeftRecursionCFG;
+    private final CFG factoredCFG;
+    private final Map<String, Set<String>> firstSets;
+    private final Map<String, Set<String>> followSets;
+    private final String startSymbol;
+    private final LL1ParsingTableConstructor tableConstructor;
+
+    GrammarAnalysis(CFG cfg, CFG noLeftRecursionCFG, CFG factoredCFG,
+                    Map<String, Set<String>> firstSets, Map<String, Set<String>> followSets,
+                    String startSymbol, LL1ParsingTableConstructor tableConstructor) {
+        this.cfg = cfg;
+        this.noLeftRecursionCFG = noLeftRecursionCFG;
+        this.factoredCFG = factoredCFG;
+        this.firstSets = firstSets;
+        this.followSets = followSets;
+        this.startSymbol = startSymbol;
+        this.tableConstructor = tableConstructor;
+    }
+
+    /**
+     * Read the grammar, remove left recursion, left factor, compute FIRST/FOLLOW
+     * and construct the LL(1) table (conflicts are recorded, not printed)
+     *
+     * @param cfgFilePath Path to the grammar file
+     * @return The analysis
+     */
+    public static GrammarAnalysis analyze(String cfgFilePath) {
+        CFG cfg = new CFGParser().parseCFG(cfgFilePath);
+        CFG noLeftRecursionCFG = LeftRecursionRemover.removeLeftRecursion(cfg);
+        CFG factoredCFG = LeftFactor.leftFactor(noLeftRecursionCFG);
+
+        Map<String, Set<String>> firstSets = FirstFollow.constructFirstSets(factoredCFG);
+        // Start symbol is the first non-terminal in the grammar
+        String startSymbol = factoredCFG.getAllProductions().keySet().iterator().next();
+        Map<String, Set<String>> followSets =
+                FirstFollow.constructFollowSets(factoredCFG, firstSets, startSymbol);
+
+        LL1ParsingTableConstructor tableConstructor =
+                new LL1ParsingTableConstructor(factoredCFG, firstSets, followSets, startSymbol);
+        tableConstructor.constructParsingTable();
+        tableConstructor.compile();
+
+        return new GrammarAnalysis(cfg, noLeftRecursionCFG, factoredCFG,
+                firstSets, followSets, startSymbol, tableConstructor);
+    }
+
+    public CFG getCfg() { return cfg; }
+    public CFG getNoLeftRecursionCFG() { return noLeftRecursionCFG; }
+    public CFG getFactoredCFG() { return factoredCFG; }
+    public Map<String, Set<String>> getFirstSets() { return firstSets; }
+    public Map<String, Set<String>> getFollowSets() { return followSets; }
+    public String getStartSymbol() { return startSymbol; }
+    public LL1ParsingTableConstructor getTableConstructor() { return tableConstructor; }
+}
@@ -0,0 +1,430 @@
+package Parser.src;
+
+import Parser.src.Grammar.CFG;
+import Parser.src.Grammar.CFGParser;
+import Parser.src.Grammar.LeftFactor;
+import Parser.src.Grammar.LeftRecursionRemover;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * On-disk cache of GrammarAnalysis results, one file per grammar content and analysis code:
+ * DIR/KEY.ll1, KEY being the hex SHA-256 of the implementation fingerprint and the grammar file, so an
+ * edited grammar, or a build whose analysis classes differ, is a miss.
+ * The directory is per user (defaultDirectory) and only used if this user owns it and, where POSIX
+ * permissions exist, no one else can write to it; an entry must be a regular file owned by this user.
+ *
+ * File format (ints are unsigned LEB128 varints, strings are indexes into the string table):
+ *   "LL1G"  FORMAT_VERSION  key (32 bytes)
+ *   string table     count, then each string: UTF-8 byte length, bytes
+ *   3 grammars       as read, without left recursion, left factored:
+ *                    non-terminal count, each: name, production count, each: length, symbols
+ *   start symbol
+ *   FIRST, FOLLOW    set count, each: non-terminal, size, members (in order)
+ *   conflicts        line count, lines
+ *   compiled table   symbol count, names; non-terminal count; terminal count; start;
+ *                    production count, each: lhs, rhs ids, symbols as in the table;
+ *                    non-terminal count * terminal count entries of production id + 1
+ * A file with another magic, version or key, or one that fails to read, is a miss.
+ * FORMAT_VERSION must change whenever the format changes; changes to the analysis code change the key.
+ * A file is read whole into memory and decoded from the byte array, with no stream per byte.
+ */
+public class GrammarCache {
+
+    public static final int FORMAT_VERSION = 1;
+    private static final byte[] MAGIC = {'L', 'L', '1', 'G'};
+
+    // classes whose code decides the analysis (their nested classes are included)
+    private static final Class<?>[] ANALYSIS_CLASSES = {
+            CFG.class, CFGParser.class, LeftRecursionRemover.class, LeftFactor.class, FirstFollow.class,
+            LL1ParsingTableConstructor.class, CompiledGrammar.class, GrammarAnalysis.class, GrammarCache.class
+    };
+    private static byte[] fingerprint;
+
+    private final Path directory;
+    private Boolean usable; // directory checked (and warned about) once
+
+    public GrammarCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * $XDG_CACHE_HOME/bili-ll1, or ~/.cache/bili-ll1
+     */
+    public static Path defaultDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        if (cacheHome == null || cacheHome.isEmpty() || !Paths.get(cacheHome).isAbsolute()) {
+            return Paths.get(System.getProperty("user.home"), ".cache", "bili-ll1");
+        }
+        return Paths.get(cacheHome, "bili-ll1");
+    }
+
+    /**
+     * Cache key of a grammar file: SHA-256 of the implementation fingerprint and the file's content
+     *
+     * @throws IOException If the grammar file or the analysis classes cannot be read
+     */
+    public static byte[] key(String cfgFilePath) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(implementationFingerprint());
+        return digest.digest(Files.readAllBytes(Paths.get(cfgFilePath)));
+    }
+
+    /**
+     * SHA-256 of FORMAT_VERSION and the class files of the analysis, so a cache written by
+     * another build of the analysis is never read by this one
+     */
+    static synchronized byte[] implementationFingerprint() throws IOException {
+        if (fingerprint == null) {
+            MessageDigest digest = sha256();
+            digest.update((byte) FORMAT_VERSION);
+            Deque<Class<?>> classes = new ArrayDeque<>(Arrays.asList(ANALYSIS_CLASSES));
+            while (!classes.isEmpty()) {
+                Class<?> cls = classes.removeFirst();
+                String resource = "/" + cls.getName().replace('.', '/') + ".class";
+                try (InputStream in = cls.getResourceAsStream(resource)) {
+                    if (in == null) throw new IOException("Cannot read " + resource);
+                    digest.update(resource.getBytes(StandardCharsets.UTF_8));
+                    digest.update(in.readAllBytes());
+                }
+                classes.addAll(Arrays.asList(cls.getDeclaredClasses()));
+            }
+            fingerprint = digest.digest();
+        }
+        return fingerprint;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cached analysis of the grammar file with this key
+     *
+     * @return The analysis, or null if there is no valid entry
+     */
+    public GrammarAnalysis load(byte[] key) {
+        if (!Files.isDirectory(directory) || !isUsable()) return null;
+        Path file = fileFor(key);
+        try {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || !isOwn(file)) return null;
+            Reader in = new Reader(Files.readAllBytes(file));
+            if (!Arrays.equals(in.readBytes(MAGIC.length), MAGIC) || in.readInt() != FORMAT_VERSION) return null;
+            if (!Arrays.equals(in.readBytes(key.length), key)) return null;
+            return in.read();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write an analysis for the grammar file with this key. Best effort: a cache that
+     * cannot be written only costs the next run the analysis.
+     */
+    public void store(byte[] key, GrammarAnalysis analysis) {
+        Path file = fileFor(key);
+        Path temp = null;
+        try {
+            if (!Files.isDirectory(directory)) createPrivateDirectories(directory);
+            if (!isUsable()) return;
+            temp = Files.createTempFile(directory, "grammar", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.write(MAGIC);
+                writeInt(out, FORMAT_VERSION);
+                out.write(key);
+                new Writer().write(analysis, out);
+            }
+            // concurrent runs only ever see complete files
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Warning: could not write grammar cache " + file + ": " + e.getMessage());
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // nothing more to clean up
+            }
+        }
+    }
+
+    /**
+     * Whether the directory is this user's alone, warning once if it is not
+     */
+    private boolean isUsable() {
+        if (usable == null) {
+            try {
+                Path real = directory.toRealPath();
+                usable = isOwn(real) && !writableByOthers(real);
+            } catch (IOException | UnsupportedOperationException e) {
+                usable = false;
+            }
+            if (!usable) {
+                System.err.println("Warning: not using grammar cache " + directory
+                        + ": it must be owned by and writable only by " + System.getProperty("user.name"));
+            }
+        }
+        return usable;
+    }
+
+    private static boolean isOwn(Path path) throws IOException {
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        return user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    private static boolean writableByOthers(Path path) throws IOException {
+        if (!Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) return false;
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+        return permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    }
+
+    // rwx------ where POSIX permissions exist
+    private static void createPrivateDirectories(Path dir) throws IOException {
+        if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(dir);
+        }
+    }
+
+    private Path fileFor(byte[] key) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : key) {
+            name.append(String.format("%02x", b & 0xFF));
+        }
+        return directory.resolve(name + ".ll1");
+    }
+
+    // --------------- Writing ---------------
+    private static class Writer {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bytes);
+
+        void write(GrammarAnalysis analysis, DataOutputStream out) throws IOException {
+            writeCFG(analysis.getCfg());
+            writeCFG(analysis.getNoLeftRecursionCFG());
+            writeCFG(analysis.getFactoredCFG());
+            writeString(analysis.getStartSymbol());
+            writeSets(analysis.getFirstSets());
+            writeSets(analysis.getFollowSets());
+            LL1ParsingTableConstructor tableConstructor = analysis.getTableConstructor();
+            writeStrings(tableConstructor.getConflicts());
+            writeCompiled(tableConstructor.compile());
+            body.flush();
+
+            // string table first, so the reader can resolve the body as it goes
+            writeInt(out, strings.size());
+            for (String s : strings.keySet()) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeInt(out, utf8.length);
+                out.write(utf8);
+            }
+            bytes.writeTo(out);
+        }
+
+        private void writeCFG(CFG cfg) throws IOException {
+            Map<String, List<List<String>>> productions = cfg.getAllProductions();
+            writeInt(body, productions.size());
+            for (Map.Entry<String, List<List<String>>> entry : productions.entrySet()) {
+                writeString(entry.getKey());
+                writeInt(body, entry.getValue().size());
+                for (List<String> production : entry.getValue()) {
+                    writeStrings(production);
+                }
+            }
+        }
+
+        private void writeSets(Map<String, Set<String>> sets) throws IOException {
+            writeInt(body, sets.size());
+            for (Map.Entry<String, Set<String>> entry : sets.entrySet()) {
+                writeString(entry.getKey());
+                writeStrings(entry.getValue());
+            }
+        }
+
+        private void writeCompiled(CompiledGrammar grammar) throws IOException {
+            writeInt(body, grammar.getSymbolCount());
+            for (int symbol = 0; symbol < grammar.getSymbolCount(); symbol++) {
+                writeString(grammar.name(symbol));
+            }
+            writeInt(body, grammar.getNonTerminalCount());
+            writeInt(body, grammar.getTerminalCount());
+            writeInt(body, grammar.getStart());
+            writeInt(body, grammar.getProductionCount());
+            for (int p = 0; p < grammar.getProductionCount(); p++) {
+                writeInt(body, grammar.lhs(p));
+                int[] rhs = grammar.rhs(p);
+                writeInt(body, rhs.length);
+                for (int symbol : rhs) {
+                    writeInt(body, symbol);
+                }
+                writeStrings(grammar.getProduction(p));
+            }
+            for (int entry : grammar.getTable()) {
+                writeInt(body, entry + 1);
+            }
+        }
+
+        private void writeStrings(Collection<String> values) throws IOException {
+            writeInt(body, values.size());
+            for (String s : values) {
+                writeString(s);
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer id = strings.get(s);
+            if (id == null) {
+                id = strings.size();
+                strings.put(s, id);
+            }
+            writeInt(body, id);
+        }
+    }
+
+    // --------------- Reading ---------------
+    private static class Reader {
+        private final byte[] data;
+        private int pos;
+        private String[] strings;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        GrammarAnalysis read() throws IOException {
+            strings = new String[readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readInt();
+                require(length);
+                strings[i] = new String(data, pos, length, StandardCharsets.UTF_8);
+                pos += length;
+            }
+            CFG cfg = readCFG();
+            CFG noLeftRecursionCFG = readCFG();
+            CFG factoredCFG = readCFG();
+            String startSymbol = readString();
+            Map<String, Set<String>> firstSets = readSets();
+            Map<String, Set<String>> followSets = readSets();
+            List<String> conflicts = readStrings();
+            CompiledGrammar compiled = readCompiled();
+            if (pos != data.length) throw new IOException("Corrupt grammar cache: trailing bytes");
+
+            LL1ParsingTableConstructor tableConstructor = new LL1ParsingTableConstructor(
+                    factoredCFG, firstSets, followSets, startSymbol, compiled, conflicts);
+            return new GrammarAnalysis(cfg, noLeftRecursionCFG, factoredCFG,
+                    firstSets, followSets, startSymbol, tableConstructor);
+        }
+
+        private CFG readCFG() throws IOException {
+            CFG cfg = new CFG();
+            int nonTerminals = readInt();
+            for (int i = 0; i < nonTerminals; i++) {
+                String lhs = readString();
+                int productions = readInt();
+                for (int p = 0; p < productions; p++) {
+                    cfg.addProduction(lhs, readStrings());
+                }
+            }
+            return cfg;
+        }
+
+        private Map<String, Set<String>> readSets() throws IOException {
+            Map<String, Set<String>> sets = new LinkedHashMap<>();
+            int count = readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                sets.put(key, new LinkedHashSet<>(readStrings()));
+            }
+            return Collections.unmodifiableMap(sets);
+        }
+
+        private CompiledGrammar readCompiled() throws IOException {
+            String[] names = new String[readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = readString();
+            }
+            int nonTerminalCount = readInt();
+            int terminalCount = readInt();
+            int start = readInt();
+            int productionCount = readInt();
+            int[] lhs = new int[productionCount];
+            int[][] rhs = new int[productionCount][];
+            List<List<String>> productions = new ArrayList<>(Math.min(productionCount, 1024));
+            for (int p = 0; p < productionCount; p++) {
+                lhs[p] = readInt();
+                rhs[p] = new int[readInt()];
+                for (int i = 0; i < rhs[p].length; i++) {
+                    rhs[p][i] = readInt();
+                }
+                productions.add(readStrings());
+            }
+            int[] table = new int[Math.multiplyExact(nonTerminalCount, terminalCount)];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = readInt() - 1;
+            }
+            return new CompiledGrammar(names, nonTerminalCount, terminalCount, start,
+                    table, lhs, rhs, productions);
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = readInt();
+            List<String> values = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            return strings[readInt()];
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            require(length);
+            byte[] bytes = Arrays.copyOfRange(data, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        int readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                require(1);
+                int b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) throw new IOException("Corrupt grammar cache: negative count");
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt grammar cache: varint too long");
+        }
+
+        private void require(int length) throws IOException {
+            if (length > data.length - pos) throw new EOFException("Corrupt grammar cache: truncated");
+        }
+    }
+
+    private static void writeInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
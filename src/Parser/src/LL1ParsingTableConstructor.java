@@ -12,6 +12,8 @@ public class LL1ParsingTableConstructor {
     private String startSymbol;
     private Map<String, Map<String, List<String>>> parsingTable;
     private boolean isLL1;
+    private List<String> conflicts; // report lines, printed by printConflicts()
+    private CompiledGrammar compiled;
 
     public LL1ParsingTableConstructor(CFG cfg, Map<String, Set<String>> firstSets,
                                       Map<String, Set<String>> followSets, String startSymbol) {
@@ -21,6 +23,20 @@ public class LL1ParsingTableConstructor {
         this.startSymbol = startSymbol;
         this.parsingTable = new LinkedHashMap<>();
         this.isLL1 = true;
+        this.conflicts = new ArrayList<>();
+    }
+
+    /**
+     * Restore a constructed table from its compiled form (see GrammarCache)
+     */
+    LL1ParsingTableConstructor(CFG cfg, Map<String, Set<String>> firstSets,
+                               Map<String, Set<String>> followSets, String startSymbol,
+                               CompiledGrammar compiled, List<String> conflicts) {
+        this(cfg, firstSets, followSets, startSymbol);
+        this.compiled = compiled;
+        this.parsingTable = compiled.toParsingTable();
+        this.conflicts.addAll(conflicts);
+        this.isLL1 = conflicts.isEmpty();
     }
 
     /**
@@ -36,6 +52,7 @@ public class LL1ParsingTableConstructor {
     public void constructParsingTable() {
         Map<String, List<List<String>>> grammar = cfg.getAllProductions();
         Set<String> terminals = collectTerminals();
+        compiled = null;
 
         // Initialize parsing table with empty entries
         for (String nonTerminal : grammar.keySet()) {
@@ -82,9 +99,9 @@ public class LL1ParsingTableConstructor {
         if (row.get(terminal) != null) {
             if (!row.get(terminal).equals(production)) {
                 isLL1 = false;
-                System.out.println("Conflict at M[" + nonTerminal + ", " + terminal + "]:");
-                System.out.println("  Existing: " + productionToString(row.get(terminal)));
-                System.out.println("  New: " + productionToString(production));
+                conflicts.add("Conflict at M[" + nonTerminal + ", " + terminal + "]:");
+                conflicts.add("  Existing: " + productionToString(row.get(terminal)));
+                conflicts.add("  New: " + productionToString(production));
             }
             // If the same production is already there, it's not a conflict, so we do nothing.
         } else {
@@ -321,7 +338,31 @@ public class LL1ParsingTableConstructor {
         return isLL1;
     }
 
+    /**
+     * Print the conflicts found while constructing the table, if any
+     */
+    public void printConflicts() {
+        for (String line : conflicts) {
+            System.out.println(line);
+        }
+    }
+
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
     public Map<String, Map<String, List<String>>> getParsingTable() {
         return parsingTable;
     }
+
+    /**
+     * Compile the constructed table into int arrays for the parser
+     * @return The table with interned symbol ids
+     */
+    public CompiledGrammar compile() {
+        if (compiled == null) {
+            compiled = new CompiledGrammar(parsingTable, startSymbol);
+        }
+        return compiled;
+    }
 }
\ No newline at end of file
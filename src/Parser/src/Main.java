@@ -1,10 +1,7 @@
 package Parser.src;
 
-import Parser.src.Grammar.CFG;
-import Parser.src.Grammar.CFGParser;
-import Parser.src.Grammar.LeftFactor;
-import Parser.src.Grammar.LeftRecursionRemover;
-
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
@@ -16,45 +13,67 @@ public class Main {
 
     public static void main(String[] args) {
         // parse cfg from file
-        if (args.length < 2) {
-            System.err.println("Usage: java Main <cfg_file_path> <input_file_path>");
+        // options: --fast parses with FastParser, printing only each line's result and errors
+        // (no trace or tree); the grammar analysis is cached on disk unless --no-cache
+        boolean fast = false;
+        boolean useCache = true;
+        Path cacheDir = GrammarCache.defaultDirectory();
+        boolean validArgs = args.length >= 2;
+        for (int i = 2; i < args.length && validArgs; i++) {
+            if (args[i].equals("--fast")) fast = true;
+            else if (args[i].equals("--no-cache")) useCache = false;
+            else if (args[i].startsWith("--cache-dir=")) cacheDir = Paths.get(args[i].substring("--cache-dir=".length()));
+            else validArgs = false;
+        }
+        if (!validArgs) {
+            System.err.println("Usage: java Main <cfg_file_path> <input_file_path> [--fast] [--no-cache] [--cache-dir=DIR]");
             System.exit(1);
         }
         String cfgFilePath = args[0];
         String inputFilePath = args[1];
 
-        CFGParser cfgParser = new CFGParser();
-        CFG cfg = cfgParser.parseCFG(cfgFilePath);
-        cfg.print();
+        // Grammar analysis: from the cache when this grammar file's content was analyzed before
+        // by the same analysis code
+        GrammarCache cache = null;
+        byte[] cacheKey = null;
+        GrammarAnalysis analysis = null;
+        if (useCache) {
+            try {
+                cacheKey = GrammarCache.key(cfgFilePath);
+                cache = new GrammarCache(cacheDir);
+                analysis = cache.load(cacheKey);
+            } catch (IOException e) {
+                // unreadable grammar file (analyze() reports it) or analysis classes: no caching
+            }
+        }
+        if (analysis == null) {
+            analysis = GrammarAnalysis.analyze(cfgFilePath);
+            if (cache != null) cache.store(cacheKey, analysis);
+        }
+
+        analysis.getCfg().print();
 
         // eliminate left recursion
         System.out.println("\n--- Removing Left Recursion ---");
-        CFG noLeftRecursionCFG = LeftRecursionRemover.removeLeftRecursion(cfg);
-        noLeftRecursionCFG.print();
+        analysis.getNoLeftRecursionCFG().print();
 
         // left factor
         System.out.println("\n--- Left Factoring ---");
-        CFG factoredCFG = LeftFactor.leftFactor(noLeftRecursionCFG);
-        factoredCFG.print();
+        analysis.getFactoredCFG().print();
 
-        // construct first and follow sets
+        // first and follow sets
         System.out.println("\n--- First Sets ---");
-        Map<String, Set<String>> firstSets = FirstFollow.constructFirstSets(factoredCFG);
-        FirstFollow.printFirstSets(firstSets);
+        FirstFollow.printFirstSets(analysis.getFirstSets());
 
         System.out.println("\n--- Follow Sets ---");
-        // Get the start symbol (first non-terminal in the grammar)
-        String startSymbol = factoredCFG.getAllProductions().keySet().iterator().next();
-        Map<String, Set<String>> followSets = FirstFollow.constructFollowSets(factoredCFG, firstSets, startSymbol);
+        Map<String, Set<String>> followSets = analysis.getFollowSets();
         FirstFollow.printFollowSets(followSets);
 
         // Task 1.6: LL(1) Parsing Table Construction
         System.out.println("\n--- LL(1) Parsing Table Construction ---");
 
-        // Construct LL(1) parsing table
-        LL1ParsingTableConstructor tableConstructor =
-                new LL1ParsingTableConstructor(factoredCFG, firstSets, followSets, startSymbol);
-        tableConstructor.constructParsingTable();
+        LL1ParsingTableConstructor tableConstructor = analysis.getTableConstructor();
+        tableConstructor.printConflicts();
 
         // Print the parsing table in detailed format (with borders)
         boolean isLL1Grammar = tableConstructor.printDetailedTable();
@@ -156,12 +175,23 @@ public class Main {
             // ========== Parsing Algorithm Implementation ==========
             System.out.println("\n--- LL(1) Parsing Stack ---");
 
-            // Create parsing algorithm instance
-            Parser parser = new Parser(tableConstructor, followSets);
-
             // Parse all input strings
             System.out.println("\nParsing all input strings...\n");
-            List<Parser.ParseResult> results = parser.parseAll(inputs);
+            List<Parser.ParseResult> results;
+            if (fast) {
+                results = new FastParser(tableConstructor.compile(), followSets).parseAll(inputs);
+                for (Parser.ParseResult result : results) {
+                    System.out.println("Line " + result.getLineNumber() + ": "
+                            + (result.isSuccess() ? "ACCEPT" : "REJECT") + "  " + result.getInputString());
+                    for (ErrorHandler.ParseError error : result.getErrors()) {
+                        System.out.println("  " + error.getMessage());
+                    }
+                }
+            } else {
+                // Create parsing algorithm instance
+                Parser parser = new Parser(tableConstructor, followSets);
+                results = parser.parseAll(inputs);
+            }
 
             // Print summary
             System.out.println("\n" + "=".repeat(60));
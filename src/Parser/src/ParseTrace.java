@@ -0,0 +1,159 @@
+package Parser.src;
+
+import java.util.*;
+
+/**
+ * Compact record of one parse's steps.
+ * Each step is five ints (step number, action, argument, ip, stack depth) in a single int[];
+ * the Stack Contents, Remaining Input and Action text of Parser.ParseStep is only rebuilt
+ * when the steps are read, by replaying the actions from the initial stack ($ and the start
+ * symbol). Recording a step is O(1), where formatting it eagerly cost O(stack + input).
+ */
+public class ParseTrace {
+
+    // Actions (argument in brackets); MATCH and EXPAND show the stack before the step,
+    // POP and POP_TERMINAL after it, the rest the stack as it is
+    static final int INITIALIZE = 0;
+    static final int ACCEPT = 1;
+    static final int MATCH = 2;
+    static final int EXPAND = 3;         // [production id]
+    static final int ERROR = 4;          // [index in the parse's errors]
+    static final int POP = 5;            // recovery popped the top symbol
+    static final int POP_TERMINAL = 6;   // terminal popped at end of input
+    static final int SKIP = 7;           // input token at ip skipped
+    static final int CANNOT_RECOVER = 8;
+
+    private static final int FIELDS = 5;
+
+    private final CompiledGrammar grammar;
+    private final List<String> input; // with $ appended
+    private final List<ErrorHandler.ParseError> errors;
+    private int[] records = new int[FIELDS * 32];
+    private int size;
+    private List<Parser.ParseStep> steps; // rebuilt on first read
+
+    public ParseTrace(CompiledGrammar grammar, List<String> input,
+                      List<ErrorHandler.ParseError> errors) {
+        this.grammar = grammar;
+        this.input = input;
+        this.errors = errors;
+    }
+
+    void add(int stepNumber, int action, int argument, int ip, int depth) {
+        if (size * FIELDS == records.length) {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        int r = size * FIELDS;
+        records[r] = stepNumber;
+        records[r + 1] = action;
+        records[r + 2] = argument;
+        records[r + 3] = ip;
+        records[r + 4] = depth;
+        size++;
+        steps = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replay the recorded actions into printable steps
+     *
+     * @return The steps, as Parser.parse used to build them
+     */
+    public List<Parser.ParseStep> getSteps() {
+        if (steps != null) return steps;
+
+        List<Parser.ParseStep> replayed = new ArrayList<>(size);
+        int[] stack = new int[16];
+        int sp = 0;
+        for (int i = 0; i < size; i++) {
+            int r = i * FIELDS;
+            int stepNumber = records[r];
+            int action = records[r + 1];
+            int argument = records[r + 2];
+            int ip = records[r + 3];
+            int depth = records[r + 4];
+
+            String text;
+            String shown = null; // stack text, when it is shown before the step changes it
+            if (action == MATCH || action == EXPAND) {
+                checkDepth(stepNumber, sp, depth);
+            }
+            switch (action) {
+                case INITIALIZE:
+                    stack[0] = grammar.getEof();
+                    stack[1] = grammar.getStart();
+                    sp = 2;
+                    text = "Initialize stack with $ and " + grammar.name(grammar.getStart());
+                    break;
+                case ACCEPT:
+                    text = "ACCEPT: Input successfully parsed!";
+                    break;
+                case MATCH:
+                    shown = display(stack, sp);
+                    sp--;
+                    text = "Match: '" + input.get(ip) + "'";
+                    break;
+                case EXPAND:
+                    shown = display(stack, sp);
+                    sp--;
+                    int[] rhs = grammar.rhs(argument);
+                    if (sp + rhs.length > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + rhs.length));
+                    }
+                    for (int k = rhs.length - 1; k >= 0; k--) {
+                        stack[sp++] = rhs[k];
+                    }
+                    text = "Expand " + grammar.productionText(argument);
+                    break;
+                case ERROR:
+                    text = "ERROR: " + errors.get(argument).getMessage();
+                    break;
+                case POP:
+                    text = "Recovery: popped " + grammar.name(stack[--sp]);
+                    break;
+                case POP_TERMINAL:
+                    text = "Recovery: popped terminal '" + grammar.name(stack[--sp]) + "' (a=$)";
+                    break;
+                case SKIP:
+                    text = "Recovery: skipping '" + input.get(ip) + "'";
+                    break;
+                case CANNOT_RECOVER:
+                    text = "ERROR: Cannot recover - terminating parse";
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown trace action " + action);
+            }
+            if (shown == null) {
+                checkDepth(stepNumber, sp, depth);
+                shown = display(stack, sp);
+            }
+            replayed.add(new Parser.ParseStep(stepNumber, shown, remainingInput(ip), text));
+        }
+        steps = replayed;
+        return steps;
+    }
+
+    private static void checkDepth(int stepNumber, int sp, int depth) {
+        if (sp != depth) {
+            throw new IllegalStateException("Trace replay at step " + stepNumber
+                    + " has stack depth " + sp + ", recorded " + depth);
+        }
+    }
+
+    private String display(int[] stack, int sp) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sp; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(grammar.name(stack[i]));
+        }
+        return sb.toString();
+    }
+
+    private String remainingInput(int ip) {
+        if (ip >= input.size()) return "";
+        return String.join(" ", input.subList(ip, input.size()));
+    }
+}
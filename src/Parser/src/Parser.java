@@ -4,11 +4,10 @@ import java.util.*;
 
 public class Parser {
 
-    private Map<String, Map<String, List<String>>> parsingTable;
+    private CompiledGrammar grammar;
     private Map<String, Set<String>> followSets;
     private String startSymbol;
-    private List<ParseStep> steps;
-    private boolean debug;
+    private boolean trace;
     private int ip;
 
     //for parse tree
@@ -16,81 +15,82 @@ public class Parser {
 
     public Parser(LL1ParsingTableConstructor tableConstructor,
                   Map<String, Set<String>> followSets) {
-        this.parsingTable = tableConstructor.getParsingTable();
+        this(tableConstructor.compile(), followSets);
+    }
+
+    public Parser(CompiledGrammar grammar, Map<String, Set<String>> followSets) {
+        this.grammar = grammar;
         this.followSets = followSets;
-        this.startSymbol = tableConstructor.getStartSymbol();
-        this.steps = new ArrayList<>();
-        this.debug = false;
+        this.startSymbol = grammar.name(grammar.getStart());
+        this.trace = true;
+    }
+
+    /**
+     * Record parsing steps (on by default). Steps are kept as a compact ParseTrace and
+     * only formatted when read; with tracing off, results have no steps at all.
+     */
+    public void setTrace(boolean trace) {
+        this.trace = trace;
     }
 
     public ParseResult parse(List<String> input, int lineNumber) {
-        steps.clear();
         List<ErrorHandler.ParseError> errors = new ArrayList<>();
         int stepNumber = 0;
         boolean success = false;
 
         List<String> inputWithDollar = new ArrayList<>(input);
         inputWithDollar.add("$");
+        int[] symbols = grammar.intern(inputWithDollar);
+        int eof = grammar.getEof();
+        ParseTrace steps = trace ? new ParseTrace(grammar, inputWithDollar, errors) : null;
 
-        Stack parserStack = new Stack();
+        Stack parserStack = new Stack(grammar);
         parserStack.initialize(startSymbol);
         ip = 0;
 
         Tree tree = new Tree();
         tree.init(startSymbol);
         trees.add(tree); // TREE: store this input's tree
-        Set<String> nonTerminals = parsingTable.keySet();
 
         ErrorHandler errorHandler = new ErrorHandler(
-                parsingTable, followSets, steps, stepNumber);
+                grammar, followSets, steps, stepNumber);
 
-        addStep(++stepNumber, parserStack.copy(),
-                getRemainingInput(inputWithDollar, ip),
-                "Initialize stack with $ and " + startSymbol);
+        addStep(steps, ++stepNumber, ParseTrace.INITIALIZE, 0, ip, parserStack);
 
         while (!parserStack.isEmpty()) {
-            String X = parserStack.top();
-            String a = inputWithDollar.get(ip);
+            int X = parserStack.topId();
+            int a = symbols[ip];
 
             // Case 1: X = a = $ → Accept
-            if (X.equals("$") && a.equals("$")) {
-                addStep(++stepNumber, parserStack.copy(),
-                        getRemainingInput(inputWithDollar, ip),
-                        "ACCEPT: Input successfully parsed!");
+            if (X == eof && a == eof) {
+                addStep(steps, ++stepNumber, ParseTrace.ACCEPT, 0, ip, parserStack);
                 success = true;
                 break;
             }
 
             // Case 2: X = a (terminal match) — consume both
-            if (X.equals(a)) {
-                Stack snapshot = parserStack.copy();
-                String inputBefore = getRemainingInput(inputWithDollar, ip);
+            if (X == a) {
+                addStep(steps, ++stepNumber, ParseTrace.MATCH, a, ip, parserStack);
                 parserStack.pop();
                 tree.match();
                 ip++;
-                addStep(++stepNumber, snapshot, inputBefore, "Match: '" + a + "'");
                 continue;
             }
 
             // Case 3: X is non-terminal — look up table and expand, or recover if empty
-            if (parsingTable.containsKey(X)) {
-                Map<String, List<String>> row = parsingTable.get(X);
-                List<String> production = row.get(a);
+            if (grammar.isNonTerminal(X)) {
+                int production = grammar.production(X, a);
 
-                if (production == null) {
+                if (production == CompiledGrammar.NO_PRODUCTION) {
                     errors.add(errorHandler.classifyError(
-                            X, a, lineNumber, ip, row));
-                    addStep(++stepNumber, parserStack.copy(),
-                            getRemainingInput(inputWithDollar, ip),
-                            "ERROR: " + errors.get(errors.size() - 1).getMessage());
+                            grammar.name(X), inputWithDollar.get(ip), lineNumber, ip, X));
+                    addStep(steps, ++stepNumber, ParseTrace.ERROR, errors.size() - 1, ip, parserStack);
 
                     int[] ipRef = {ip};
                     int[] stepRef = {stepNumber};
-                    if (!errorHandler.recover(parserStack, inputWithDollar,
+                    if (!errorHandler.recover(parserStack, inputWithDollar, symbols,
                             ipRef, stepRef, lineNumber,tree)) {
-                        addStep(++stepNumber, parserStack.copy(),
-                                getRemainingInput(inputWithDollar, ip),
-                                "ERROR: Cannot recover - terminating parse");
+                        addStep(steps, ++stepNumber, ParseTrace.CANNOT_RECOVER, 0, ip, parserStack);
                         break;
                     }
                     ip = ipRef[0];
@@ -99,42 +99,26 @@ public class Parser {
                 }
 
                 // Valid production — expand
-                Stack snapshot = parserStack.copy();
+                addStep(steps, ++stepNumber, ParseTrace.EXPAND, production, ip, parserStack);
                 parserStack.pop();
-                if (production.isEmpty() ||
-                        (production.size() == 1 && production.get(0).equals("@"))) {
-                    tree.expand(production, nonTerminals);
-                    addStep(++stepNumber, snapshot,
-                            getRemainingInput(inputWithDollar, ip),
-                            "Expand " + X + " -> @");
-                } else {
-                    parserStack.pushAll(production);
-                    tree.expand(production, nonTerminals);
-                    addStep(++stepNumber, snapshot,
-                            getRemainingInput(inputWithDollar, ip),
-                            "Expand " + X + " -> " + String.join(" ", production));
-                }
+                parserStack.pushProduction(production);
+                tree.expand(production, grammar);
                 continue;
             }
 
             // Case 4: X is terminal but X != a — report error and recover
             errors.add(errorHandler.classifyError(
-                    X, a, lineNumber, ip, null));
-            addStep(++stepNumber, parserStack.copy(),
-                    getRemainingInput(inputWithDollar, ip),
-                    "ERROR: " + errors.get(errors.size() - 1).getMessage());
+                    grammar.name(X), inputWithDollar.get(ip), lineNumber, ip, CompiledGrammar.UNKNOWN));
+            addStep(steps, ++stepNumber, ParseTrace.ERROR, errors.size() - 1, ip, parserStack);
 
-            if (a.equals("$")) {
-                String popped = parserStack.pop();
+            if (a == eof) {
+                int popped = parserStack.topId();
+                parserStack.pop();
                 tree.popError();
-                addStep(++stepNumber, parserStack.copy(),
-                        getRemainingInput(inputWithDollar, ip),
-                        "Recovery: popped terminal '" + popped + "' (a=$)");
+                addStep(steps, ++stepNumber, ParseTrace.POP_TERMINAL, popped, ip, parserStack);
             } else {
-                tree.skipToken(a);
-                addStep(++stepNumber, parserStack.copy(),
-                        getRemainingInput(inputWithDollar, ip),
-                        "Recovery: skipping '" + a + "'");
+                tree.skipToken(inputWithDollar.get(ip));
+                addStep(steps, ++stepNumber, ParseTrace.SKIP, a, ip, parserStack);
                 ip++;
             }
         }
@@ -142,27 +126,17 @@ public class Parser {
         // Premature end check
         if (!success && !parserStack.isEmpty() && !parserStack.onlyDollar()) {
             errors.add(errorHandler.classifyError(
-                    parserStack.top(), "$", lineNumber, ip, null));
-            addStep(++stepNumber, parserStack.copy(),
-                    getRemainingInput(inputWithDollar, ip),
-                    "ERROR: " + errors.get(errors.size() - 1).getMessage());
+                    parserStack.top(), "$", lineNumber, ip, CompiledGrammar.UNKNOWN));
+            addStep(steps, ++stepNumber, ParseTrace.ERROR, errors.size() - 1, ip, parserStack);
         }
 
         return new ParseResult(success, steps, errors,
                 String.join(" ", input), lineNumber, tree);
     }
 
-    private String getRemainingInput(List<String> input, int ip) {
-        if (ip >= input.size()) return "";
-        return String.join(" ", input.subList(ip, input.size()));
-    }
-
-    private void addStep(int stepNumber, Stack currentStack,
-                         String remainingInput, String action) {
-        ParseStep step = new ParseStep(stepNumber, currentStack,
-                remainingInput, action);
-        steps.add(step);
-        if (debug) System.out.println(step.getFormattedStep());
+    private static void addStep(ParseTrace steps, int stepNumber, int action,
+                                int argument, int ip, Stack currentStack) {
+        if (steps != null) steps.add(stepNumber, action, argument, ip, currentStack.size());
     }
 
     public List<ParseResult> parseAll(List<List<String>> inputs) {
@@ -193,8 +167,13 @@ public class Parser {
 
         public ParseStep(int stepNumber, Stack stack,
                          String remainingInput, String action) {
+            this(stepNumber, stack.toDisplayString(), remainingInput, action);
+        }
+
+        public ParseStep(int stepNumber, String stackContents,
+                         String remainingInput, String action) {
             this.stepNumber = stepNumber;
-            this.stackContents = stack.toDisplayString();
+            this.stackContents = stackContents;
             this.remainingInput = remainingInput;
             this.action = action;
         }
@@ -214,6 +193,7 @@ public class Parser {
     public static class ParseResult {
         private boolean success;
         private List<ParseStep> steps;
+        private ParseTrace trace; // steps are replayed from it when first read
         private List<ErrorHandler.ParseError> errors;
         private String inputString;
         private int lineNumber;
@@ -231,6 +211,16 @@ public class Parser {
             this.tree = tree;
         }
 
+        // trace may be null (tracing off): no steps
+        public ParseResult(boolean success, ParseTrace trace,
+                           List<ErrorHandler.ParseError> errors,
+                           String inputString, int lineNumber,
+                           Tree tree) {
+            this(success, trace == null ? Collections.emptyList() : null,
+                    errors, inputString, lineNumber, tree);
+            this.trace = trace;
+        }
+
         public Tree getTree() { return tree; }
 
         public void printResult() {
@@ -238,7 +228,7 @@ public class Parser {
             System.out.println("\nParsing Steps:");
             System.out.println("Step  | Stack Contents                   | Remaining Input      | Action");
             System.out.println("-".repeat(80));
-            for (ParseStep step : steps) {
+            for (ParseStep step : getSteps()) {
                 System.out.println(step.getFormattedStep());
             }
             if (!errors.isEmpty()) {
@@ -263,7 +253,10 @@ public class Parser {
         }
 
         public boolean isSuccess() { return success; }
-        public List<ParseStep> getSteps() { return steps; }
+        public List<ParseStep> getSteps() {
+            if (steps == null) steps = trace.getSteps();
+            return steps;
+        }
         public List<ErrorHandler.ParseError> getErrors() { return errors; }
         public String getInputString() { return inputString; }
         public int getLineNumber() { return lineNumber; }
@@ -10,6 +10,9 @@ import java.util.List;
  */
 public class Stack {
     private List<String> stack;
+    // With a compiled grammar, each symbol's interned id is kept alongside its name
+    private CompiledGrammar grammar;
+    private int[] ids;
 
     /**
      * Constructor - initializes empty stack
@@ -18,6 +21,17 @@ public class Stack {
         this.stack = new ArrayList<>();
     }
 
+    /**
+     * Constructor - initializes empty stack that also tracks symbol ids of grammar
+     *
+     * @param grammar Compiled grammar the symbols are interned in
+     */
+    public Stack(CompiledGrammar grammar) {
+        this();
+        this.grammar = grammar;
+        this.ids = new int[16];
+    }
+
     /**
      * Initialize stack with $ (bottom marker) and push start symbol
      *
@@ -26,9 +40,9 @@ public class Stack {
     public void initialize(String startSymbol) {
         stack.clear();
         // Push $ first (bottom marker)
-        stack.add("$");
+        push("$");
         // Push start symbol on top
-        stack.add(startSymbol);
+        push(startSymbol);
         System.out.println("Stack initialized: " + this);
     }
 
@@ -38,9 +52,31 @@ public class Stack {
      * @param symbol Symbol to push
      */
     public void push(String symbol) {
+        push(symbol, grammar == null ? CompiledGrammar.UNKNOWN : grammar.id(symbol));
+    }
+
+    private void push(String symbol, int id) {
+        if (ids != null) {
+            if (stack.size() == ids.length) {
+                ids = java.util.Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[stack.size()] = id;
+        }
         stack.add(symbol);
     }
 
+    /**
+     * Push the right-hand side of a compiled production in reverse order
+     *
+     * @param production Production id in the stack's grammar
+     */
+    public void pushProduction(int production) {
+        int[] rhs = grammar.rhs(production);
+        for (int i = rhs.length - 1; i >= 0; i--) {
+            push(grammar.name(rhs[i]), rhs[i]);
+        }
+    }
+
     /**
      * Push multiple symbols in reverse order (for production expansion)
      *
@@ -79,6 +115,19 @@ public class Stack {
         return stack.get(stack.size() - 1);
     }
 
+    /**
+     * View the id of the top symbol without removing it
+     *
+     * @return The top symbol's id in the stack's grammar
+     * @throws IllegalStateException if stack is empty
+     */
+    public int topId() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Stack is empty");
+        }
+        return ids[stack.size() - 1];
+    }
+
     /**
      * Check if stack is empty
      *
@@ -170,6 +219,8 @@ public class Stack {
     public Stack copy() {
         Stack newStack = new Stack();
         newStack.stack = new ArrayList<>(this.stack);
+        newStack.grammar = this.grammar;
+        newStack.ids = this.ids == null ? null : this.ids.clone();
         return newStack;
     }
 }
\ No newline at end of file
@@ -48,11 +48,11 @@ public class Tree {
      * Pops X's node from nodeStack, creates child nodes for each Yi,
      * pushes them in reverse order (so Y1 is processed first).
      */
-    public void expand(List<String> production, Set<String> nonTerminals) {
+    public void expand(int production, CompiledGrammar grammar) {
         TreeNode parent = nodeStack.pop();
+        int[] rhs = grammar.rhs(production);
 
-        if (production.isEmpty() ||
-                (production.size() == 1 && production.get(0).equals("@"))) {
+        if (rhs.length == 0) {
             // Epsilon production — add epsilon leaf
             TreeNode epsNode = new TreeNode("@", true, nodeCounter++);
             parent.addChild(epsNode);
@@ -60,17 +60,17 @@ public class Tree {
         }
 
         // Create child nodes and attach to parent
-        List<TreeNode> childNodes = new ArrayList<>();
-        for (String symbol : production) {
-            boolean isTerminal = !nonTerminals.contains(symbol);
-            TreeNode child = new TreeNode(symbol, isTerminal, nodeCounter++);
+        TreeNode[] childNodes = new TreeNode[rhs.length];
+        for (int i = 0; i < rhs.length; i++) {
+            boolean isTerminal = !grammar.isNonTerminal(rhs[i]);
+            TreeNode child = new TreeNode(grammar.name(rhs[i]), isTerminal, nodeCounter++);
             parent.addChild(child);
-            childNodes.add(child);
+            childNodes[i] = child;
         }
 
         // Push in reverse so the leftmost symbol is on top
-        for (int i = childNodes.size() - 1; i >= 0; i--) {
-            nodeStack.push(childNodes.get(i));
+        for (int i = childNodes.length - 1; i >= 0; i--) {
+            nodeStack.push(childNodes[i]);
         }
     }
 
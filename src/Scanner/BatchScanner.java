@@ -0,0 +1,283 @@
+package Scanner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+// Scans many .bili files in one JVM: files are scanned concurrently on a bounded pool (single-pass,
+// one ManualScanner per file) and their statistics & symbol tables are merged into one report.
+// Results are consumed in path order, so the report and the optional per-file dumps are deterministic.
+// At most 2 * threads files are in flight (scanning, or finished and waiting for their turn), so a slow
+// file holds back at most that many results; once merged, a file keeps only its path and statistics.
+// With useSketch(), identifiers are not merged into an exact table: each worker thread folds its files'
+// tables into its own IdentifierSketch and the sketches are merged at the end (fixed memory per thread,
+// approximate report).
+public class BatchScanner {
+
+    // per-file outcome; tokens are only kept until the file has been dumped
+    public static class FileResult {
+        private final Path path;
+        private final TokenStatistics statistics;
+        private SymbolTable symbolTable; // null once folded into a sketch or merged
+        private final String failure; // read error, or null
+        private TokenStream tokens;
+
+        FileResult(Path path, ManualScanner scanner, TokenStream tokens, boolean sketched) {
+            this.path = path;
+            this.statistics = scanner.getStatistics();
+            this.symbolTable = sketched ? null : scanner.symbolTable();
+            this.failure = null;
+            this.tokens = tokens;
+        }
+
+        FileResult(Path path, String failure) {
+            this.path = path;
+            this.statistics = new TokenStatistics();
+            this.failure = failure;
+        }
+
+        public Path getPath() { return path; }
+        public TokenStatistics getStatistics() { return statistics; }
+        public SymbolTable getSymbolTable() { return symbolTable; } // null after scan()
+        public String getFailure() { return failure; }
+        public int getErrorCount() { return statistics.getCount(TokenType.ERROR); }
+    }
+
+    private final int threads;
+    private final ManualScanner.Engine engine;
+    private final boolean dumpTokens;
+    private int sketchBudget; // bytes per sketch, 0: exact symbol table
+    private int sketchTopK;
+    private final List<IdentifierSketch> threadSketches = new CopyOnWriteArrayList<>();
+    private ThreadLocal<IdentifierSketch> threadSketch;
+    private IdentifierSketch sketch; // merged, after scan()
+
+    // merged report
+    private final List<FileResult> files = new ArrayList<>();
+    private final TokenStatistics statistics = new TokenStatistics();
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    public BatchScanner(int threads, ManualScanner.Engine engine, boolean dumpTokens) {
+        this.threads = threads;
+        this.engine = engine;
+        this.dumpTokens = dumpTokens;
+    }
+
+    // approximate identifier statistics within budgetBytes per worker thread, reporting the topK heaviest
+    public void useSketch(int budgetBytes, int topK) {
+        IdentifierSketch.checkBudget(budgetBytes, topK); // before any worker builds a sketch
+        this.sketchBudget = budgetBytes;
+        this.sketchTopK = topK;
+        this.threadSketch = ThreadLocal.withInitial(() -> {
+            IdentifierSketch s = new IdentifierSketch(sketchBudget, sketchTopK);
+            threadSketches.add(s);
+            return s;
+        });
+    }
+
+    // .bili files named by the arguments: a file, a directory (searched recursively) or a glob such as
+    // "src/**/*.bili" (matched below the glob's fixed leading directories); sorted, without duplicates
+    public static List<Path> expand(List<String> patterns) throws IOException {
+        SortedSet<Path> found = new TreeSet<>();
+        for (String pattern : patterns) {
+            if (isGlob(pattern)) {
+                Path base = globBase(pattern);
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+                if (!Files.isDirectory(base)) continue;
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(p -> matcher.matches(p) || matcher.matches(p.normalize()))
+                            .forEach(p -> found.add(p.normalize()));
+                }
+            } else {
+                Path path = Paths.get(pattern);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(Files::isRegularFile)
+                                .filter(p -> p.toString().endsWith(".bili"))
+                                .forEach(p -> found.add(p.normalize()));
+                    }
+                } else {
+                    found.add(path.normalize());
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    private static boolean isGlob(String pattern) {
+        for (char c : pattern.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == '{') return true;
+        }
+        return false;
+    }
+
+    // longest leading run of path segments without glob characters
+    private static Path globBase(String pattern) {
+        String[] parts = pattern.split("/", -1);
+        StringBuilder base = new StringBuilder(pattern.startsWith("/") ? "/" : "");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if (isGlob(parts[i])) break;
+            if (parts[i].isEmpty()) continue;
+            base.append(parts[i]).append('/');
+        }
+        return base.length() == 0 ? Paths.get(".") : Paths.get(base.toString());
+    }
+
+    // scan all files; dumps (if enabled) are printed as each file's turn comes, in path order
+    public void scan(List<Path> paths) {
+        long scanStart = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // window of in-flight files, oldest first: the next file is submitted as the oldest is merged
+            int window = 2 * threads;
+            Deque<Future<FileResult>> pending = new ArrayDeque<>(window);
+            int next = 0;
+            while (next < paths.size() || !pending.isEmpty()) {
+                while (next < paths.size() && pending.size() < window) {
+                    Path path = paths.get(next);
+                    int file = next++;
+                    pending.addLast(executor.submit(() -> scanFile(path, file)));
+                }
+                FileResult result = pending.removeFirst().get();
+                if (dumpTokens) dump(result);
+                result.tokens = null;
+                merge(result);
+            }
+            if (threadSketch != null) {
+                sketch = new IdentifierSketch(sketchBudget, sketchTopK);
+                for (IdentifierSketch s : threadSketches) sketch.merge(s);
+                threadSketches.clear();
+            }
+            statistics.setNanos(System.nanoTime() - scanStart); // wall time, not the sum over files
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch scan failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // file: index in path order (orders first occurrences in the sketch)
+    private FileResult scanFile(Path path, int file) {
+        if (!path.toString().endsWith(".bili")) {
+            return new FileResult(path, "input file must have .bili extension");
+        }
+        String source;
+        try {
+            source = Files.readString(path);
+        } catch (NoSuchFileException e) {
+            return new FileResult(path, "file not found");
+        } catch (IOException | UncheckedIOException e) {
+            return new FileResult(path, e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        ManualScanner scanner = new ManualScanner(source);
+        scanner.setEngine(engine);
+        TokenStream tokens = scanner.scanTokenStream();
+        if (threadSketch != null) threadSketch.get().add(scanner.symbolTable(), file);
+        FileResult result = new FileResult(path, scanner, dumpTokens ? tokens : null, threadSketch != null);
+        try {
+            result.statistics.setBytes(Files.size(path));
+        } catch (IOException e) {
+            // size unknown: reported as 0 bytes
+        }
+        return result;
+    }
+
+    private void dump(FileResult result) {
+        System.out.println("\n--- " + result.path + " ---");
+        if (result.failure != null) {
+            System.err.println("Failed to read file: " + result.failure);
+            return;
+        }
+        for (Token token : result.tokens) {
+            if (token.getType() == TokenType.ERROR) {
+                ErrorHandler.handleError(token);
+                continue;
+            }
+            System.out.println(token);
+        }
+    }
+
+    private void merge(FileResult result) {
+        files.add(result);
+        statistics.add(result.statistics);
+        if (result.symbolTable != null) symbolTable.merge(result.symbolTable);
+        result.symbolTable = null;
+    }
+
+    public List<FileResult> getFiles() { return files; }
+    public TokenStatistics getStatistics() { return statistics; }
+    public SymbolTable getSymbolTable() { return symbolTable; }
+    public IdentifierSketch getSketch() { return sketch; } // null unless useSketch()
+
+    // per-file summary followed by the merged statistics & symbol table
+    // (first occurrences refer to the first file, in path order, that uses the identifier)
+    public void printReport() {
+        System.out.println("\nFiles: ");
+        int failed = 0;
+        for (FileResult file : files) {
+            if (file.failure != null) {
+                failed++;
+                System.out.printf("%s: FAILED (%s)%n", file.path, file.failure);
+            } else {
+                System.out.printf("%s: %d tokens, %d lines, %d errors%n",
+                        file.path, file.statistics.getTotal(), file.statistics.getLinesProcessed(), file.getErrorCount());
+            }
+        }
+        System.out.println("Files scanned: " + (files.size() - failed) + (failed > 0 ? " (" + failed + " failed)" : ""));
+
+        if (sketch != null) {
+            statistics.print();
+            sketch.print();
+        } else {
+            ManualScanner.printStatistics(statistics, symbolTable);
+        }
+    }
+
+    // one row per scanned file, then the merged total (see TokenStatistics.write)
+    public void writeStatistics(Path out) {
+        List<String> sources = new ArrayList<>();
+        List<TokenStatistics> rows = new ArrayList<>();
+        for (FileResult file : files) {
+            if (file.failure != null) continue;
+            sources.add(file.path.toString());
+            rows.add(file.statistics);
+        }
+        sources.add("total");
+        rows.add(statistics);
+        ManualScanner.writeStatistics(out, sources, rows);
+    }
+
+    public static void RunBatchScanner(List<String> patterns, int threads, ManualScanner.Engine engine, boolean dumpTokens,
+                                       Path statsOut) {
+        RunBatchScanner(patterns, threads, engine, dumpTokens, statsOut, 0, 0);
+    }
+
+    // sketchBytes > 0: approximate identifier statistics (useSketch) reporting the topK heaviest
+    public static void RunBatchScanner(List<String> patterns, int threads, ManualScanner.Engine engine, boolean dumpTokens,
+                                       Path statsOut, int sketchBytes, int topK) {
+        List<Path> paths;
+        try {
+            paths = expand(patterns);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to list files: " + e.getMessage());
+            return;
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Error: No .bili files matched " + patterns);
+            return;
+        }
+
+        BatchScanner batch = new BatchScanner(threads, engine, dumpTokens);
+        if (sketchBytes > 0) batch.useSketch(sketchBytes, topK);
+        batch.scan(paths);
+        batch.printReport();
+        if (statsOut != null) batch.writeStatistics(statsOut);
+    }
+}
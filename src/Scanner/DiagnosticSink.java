@@ -0,0 +1,125 @@
+package Scanner;
+
+import java.io.Console;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Where ErrorHandler sends scanner diagnostics. Each error is formatted into one reused StringBuilder and
+// written with a single print() to the (normally buffered, see Main) output stream, as colored text or as
+// one JSON object per line. Garbage-heavy input can be capped (maxErrors) and/or sampled (every n-th
+// error): suppressed errors are only counted, per reason, without resolving their line/col, and finish()
+// prints how many were left out.
+public class DiagnosticSink {
+
+    public enum Format { TEXT, JSON }
+
+    private final PrintStream out;
+    private final Format format;
+    private final boolean color;
+    private final int maxErrors; // reported at most, < 0: no cap
+    private final int sampleEvery; // report every n-th error (1: all)
+
+    private final StringBuilder line = new StringBuilder(128);
+    private final Map<String, int[]> suppressed = new LinkedHashMap<>(); // reason -> count
+    private int seen;
+    private int reported;
+
+    public DiagnosticSink(PrintStream out, Format format, boolean color, int maxErrors, int sampleEvery) {
+        if (sampleEvery < 1) throw new IllegalArgumentException("sampleEvery must be positive: " + sampleEvery);
+        this.out = out;
+        this.format = format;
+        this.color = color && format == Format.TEXT;
+        this.maxErrors = maxErrors;
+        this.sampleEvery = sampleEvery;
+    }
+
+    // text to stdout, every error; colored only on a terminal (and unless NO_COLOR is set)
+    public static DiagnosticSink standard() {
+        return new DiagnosticSink(System.out, Format.TEXT, isTerminal(), -1, 1);
+    }
+
+    // stdout is a terminal: from JDK 22 System.console() is non-null even when output is redirected, so ask
+    // Console.isTerminal() (looked up reflectively, this builds on older JDKs); before 22 a console means
+    // stdin and stdout are both terminals
+    public static boolean isTerminal() {
+        Console console = System.console();
+        if (console == null || System.getenv("NO_COLOR") != null) return false;
+        try {
+            return (Boolean) Console.class.getMethod("isTerminal").invoke(console);
+        } catch (NoSuchMethodException e) {
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    public synchronized void report(Token token, String reason) {
+        if (admit(reason)) write(token.getType(), token.getLine(), token.getColumn(), token.getLexeme(), reason);
+    }
+
+    public synchronized void report(TokenType type, int line, int col, String lexeme, String reason) {
+        if (admit(reason)) write(type, line, col, lexeme, reason);
+    }
+
+    // count the error; false if it is sampled out or over the cap
+    private boolean admit(String reason) {
+        int n = seen++;
+        if (n % sampleEvery == 0 && (maxErrors < 0 || reported < maxErrors)) {
+            reported++;
+            return true;
+        }
+        suppressed.computeIfAbsent(reason, r -> new int[1])[0]++;
+        return false;
+    }
+
+    private void write(TokenType type, int lineNo, int col, String lexeme, String reason) {
+        StringBuilder b = line;
+        b.setLength(0);
+        if (format == Format.JSON) {
+            b.append("{\"type\": \"").append(type)
+                    .append("\", \"line\": ").append(lineNo)
+                    .append(", \"col\": ").append(col)
+                    .append(", \"lexeme\": ").append(lexeme == null ? "null" : TokenStatistics.jsonString(lexeme))
+                    .append(", \"reason\": ").append(TokenStatistics.jsonString(reason))
+                    .append('}');
+        } else {
+            if (color) b.append(ErrorHandler.ANSI_RED);
+            b.append("[ERROR] Type: ").append(type)
+                    .append(" | Line: ").append(lineNo)
+                    .append(", Col: ").append(col)
+                    .append(" | Lexeme: '").append(lexeme)
+                    .append("' | Reason: ").append(reason);
+            if (color) b.append(ErrorHandler.ANSI_RESET);
+        }
+        b.append(System.lineSeparator());
+        out.print(b);
+    }
+
+    // summary of suppressed errors (nothing if every error was reported); flushes the output
+    public synchronized void finish() {
+        if (seen > reported) {
+            if (format == Format.JSON) {
+                line.setLength(0);
+                line.append("{\"errors\": ").append(seen).append(", \"reported\": ").append(reported)
+                        .append(", \"suppressed\": {");
+                boolean first = true;
+                for (Map.Entry<String, int[]> entry : suppressed.entrySet()) {
+                    if (!first) line.append(", ");
+                    first = false;
+                    line.append(TokenStatistics.jsonString(entry.getKey())).append(": ").append(entry.getValue()[0]);
+                }
+                out.println(line.append("}}"));
+            } else {
+                out.printf("%d errors, %d reported, %d suppressed:%n", seen, reported, seen - reported);
+                for (Map.Entry<String, int[]> entry : suppressed.entrySet()) {
+                    out.printf("  %s: %d%n", entry.getKey(), entry.getValue()[0]);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    public synchronized int getErrorCount() { return seen; }
+    public synchronized int getReportedCount() { return reported; }
+}
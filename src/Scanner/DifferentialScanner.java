@@ -0,0 +1,218 @@
+package Scanner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.*;
+
+// manual-flex mode: ManualScanner and the JFlex Lexer scan the same text concurrently, each on its own
+// thread, handing tokens over in batches through bounded queues; the calling thread compares the two
+// sequences in lock-step by position (line, col). Tokens at the same position must agree on type and lexeme
+// (error reasons are worded differently by the two lexers and are not compared); a token whose position the
+// other lexer skips over is reported on its own. The first N mismatches are printed, then per-engine token
+// counts, CPU time, tokens/s and bytes allocated (by the scanning thread).
+public class DifferentialScanner {
+
+    private static final int BATCH = 256; // tokens per queue entry
+    private static final int QUEUE_BATCHES = 16; // bound: a fast lexer runs at most this far ahead
+    private static final Token[] END = new Token[0];
+
+    // next token, null (or an EOF token) at end of input
+    interface TokenSource {
+        Token next() throws IOException;
+    }
+
+    // what one engine's thread measured
+    static class EngineRun {
+        final String name;
+        long tokens;
+        long cpuNanos = -1; // -1: not measured by this JVM
+        long allocatedBytes = -1;
+        Throwable failure;
+
+        EngineRun(String name) {
+            this.name = name;
+        }
+
+        String summary() {
+            StringBuilder s = new StringBuilder(String.format("%-7s %d tokens", name + ":", tokens));
+            if (cpuNanos >= 0) {
+                double seconds = cpuNanos / 1e9;
+                s.append(String.format(", %.1f ms CPU, %.0f tokens/s", cpuNanos / 1e6, seconds > 0 ? tokens / seconds : 0));
+            }
+            if (allocatedBytes >= 0) s.append(String.format(", %d KB allocated", allocatedBytes / 1024));
+            if (failure != null) s.append(", FAILED: ").append(failure);
+            return s.toString();
+        }
+    }
+
+    private final int maxMismatches;
+    private long mismatches;
+    private long compared;
+
+    DifferentialScanner(int maxMismatches) {
+        this.maxMismatches = maxMismatches;
+    }
+
+    long getMismatches() { return mismatches; }
+
+    // scan with both engines and print the report; returns the number of mismatches (-1 if a lexer failed)
+    long compare(String nameA, TokenSource a, String nameB, TokenSource b) {
+        BlockingQueue<Token[]> queueA = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        BlockingQueue<Token[]> queueB = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        EngineRun runA = new EngineRun(nameA);
+        EngineRun runB = new EngineRun(nameB);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> doneA = executor.submit(() -> produce(a, queueA, runA));
+            Future<?> doneB = executor.submit(() -> produce(b, queueB, runB));
+            long start = System.nanoTime();
+            lockStep(new Cursor(queueA), new Cursor(queueB), nameA, nameB);
+            doneA.get();
+            doneB.get();
+            long wall = System.nanoTime() - start;
+
+            if (mismatches > maxMismatches) {
+                System.out.printf("... %d more mismatches%n", mismatches - maxMismatches);
+            }
+            System.out.println(runA.summary());
+            System.out.println(runB.summary());
+            System.out.printf("Compared %d positions in %.1f ms: %s%n", compared, wall / 1e6,
+                    mismatches == 0 ? "token streams match" : mismatches + " mismatches");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Differential scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Differential scan failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return runA.failure != null || runB.failure != null ? -1 : mismatches;
+    }
+
+    // scanning thread: batches of tokens into queue, END last (also after a failure)
+    private static void produce(TokenSource source, BlockingQueue<Token[]> queue, EngineRun run) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        boolean cpu = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        long cpuStart = cpu ? threads.getCurrentThreadCpuTime() : 0;
+        long allocatedStart = allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+        long blocked = 0; // CPU spent handing batches over is not the lexer's
+        try {
+            Token[] batch = new Token[BATCH];
+            int n = 0;
+            Token token;
+            while ((token = source.next()) != null && token.getType() != TokenType.EOF) {
+                batch[n++] = token;
+                run.tokens++;
+                if (n == BATCH) {
+                    long t = cpu ? threads.getCurrentThreadCpuTime() : 0;
+                    queue.put(batch);
+                    if (cpu) blocked += threads.getCurrentThreadCpuTime() - t;
+                    batch = new Token[BATCH];
+                    n = 0;
+                }
+            }
+            if (n > 0) queue.put(java.util.Arrays.copyOf(batch, n));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.failure = e;
+        } catch (Exception | Error e) {
+            run.failure = e;
+        } finally {
+            if (cpu) run.cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart - blocked;
+            if (allocations != null) run.allocatedBytes = allocations.getCurrentThreadAllocatedBytes() - allocatedStart;
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // consumer side of one queue
+    private static class Cursor {
+        private final BlockingQueue<Token[]> queue;
+        private Token[] batch = new Token[0];
+        private int index;
+        private boolean ended;
+
+        Cursor(BlockingQueue<Token[]> queue) {
+            this.queue = queue;
+        }
+
+        // current token, null at the end
+        Token peek() throws InterruptedException {
+            while (!ended && index == batch.length) {
+                batch = queue.take();
+                index = 0;
+                ended = batch == END;
+            }
+            return ended ? null : batch[index];
+        }
+
+        void advance() {
+            index++;
+        }
+    }
+
+    private void lockStep(Cursor a, Cursor b, String nameA, String nameB) throws InterruptedException {
+        while (true) {
+            Token x = a.peek();
+            Token y = b.peek();
+            if (x == null && y == null) return;
+            compared++;
+            int order = x == null ? 1 : y == null ? -1 : comparePositions(x, y);
+            if (order == 0) {
+                if (x.getType() != y.getType() || !x.getLexeme().equals(y.getLexeme())) mismatch(x, y, nameA, nameB);
+                a.advance();
+                b.advance();
+            } else if (order < 0) {
+                mismatch(x, null, nameA, nameB); // only in a
+                a.advance();
+            } else {
+                mismatch(null, y, nameA, nameB);
+                b.advance();
+            }
+        }
+    }
+
+    private static int comparePositions(Token x, Token y) {
+        if (x.getLine() != y.getLine()) return Integer.compare(x.getLine(), y.getLine());
+        return Integer.compare(x.getColumn(), y.getColumn());
+    }
+
+    private void mismatch(Token x, Token y, String nameA, String nameB) {
+        if (++mismatches > maxMismatches) return;
+        Token at = x != null ? x : y;
+        int width = Math.max(nameA.length(), nameB.length()) + 1;
+        System.out.printf("Mismatch %d at line %d, col %d:%n", mismatches, at.getLine(), at.getColumn());
+        System.out.printf("  %-" + width + "s %s%n", nameA + ":", x == null ? "(no token)" : describe(x));
+        System.out.printf("  %-" + width + "s %s%n", nameB + ":", y == null ? "(no token)" : describe(y));
+    }
+
+    private static String describe(Token token) {
+        return token.getReason() == null ? token.toString() : token + " (" + token.getReason() + ")";
+    }
+
+    // manual-flex: the in-memory manual scanner (single pass, so both lexers see the original text and
+    // report the same line/col) against the JFlex Lexer. Returns the number of mismatches, -1 on failure.
+    public static long RunDifferential(String sourceFile, ManualScanner.Engine engine, int maxMismatches) {
+        String source;
+        try {
+            source = Files.readString(Paths.get(sourceFile));
+        } catch (IOException e) {
+            System.err.println("Failed to read file: " + e.getMessage());
+            return -1;
+        }
+        ManualScanner scanner = new ManualScanner(source);
+        scanner.setEngine(engine);
+        Lexer lexer = new Lexer(new StringReader(source));
+        return new DifferentialScanner(maxMismatches).compare("manual", scanner::nextToken, "flex", lexer::yylex);
+    }
+}
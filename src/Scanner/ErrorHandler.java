@@ -4,15 +4,31 @@ public class ErrorHandler {
     public static final String ANSI_RED = "\u001B[31m";
     public static final String ANSI_RESET = "\u001B[0m";
 
+    private static volatile DiagnosticSink sink; // created on first use: DiagnosticSink.standard()
+
+    public static DiagnosticSink getSink() {
+        DiagnosticSink s = sink;
+        if (s == null) {
+            synchronized (ErrorHandler.class) {
+                if (sink == null) sink = DiagnosticSink.standard();
+                s = sink;
+            }
+        }
+        return s;
+    }
+
+    public static void setSink(DiagnosticSink diagnostics) {
+        sink = diagnostics;
+    }
+
     public static void report(TokenType type, int line, int col, String lexeme, String reason) {
-        System.out.printf("%s[ERROR] Type: %s | Line: %d, Col: %d | Lexeme: '%s' | Reason: %s%s%n",
-                ANSI_RED, type, line, col, lexeme, reason, ANSI_RESET);
+        getSink().report(type, line, col, lexeme, reason);
     }
 
     // handle error with a reason
     public static void handleError(Token token) {
         if (token.getReason()!= null) {
-            report(token.getType(), token.getLine(), token.getColumn(), token.getLexeme(), token.getReason());
+            getSink().report(token, token.getReason());
         } else {
             handleErrorInferReason(token);
         }
@@ -20,23 +36,34 @@ public class ErrorHandler {
 
     // if no reason provided try to infer reason based on lexeme pattern
     public static void handleErrorInferReason(Token token) {
-        String lexeme = token.getLexeme();
-        String reason = "Invalid token";
+        getSink().report(token, inferReason(token.getLexeme()));
+    }
 
+    static String inferReason(String lexeme) {
         if (lexeme == null) {
-            reason = "Unknown error";
+            return "Unknown error";
         } else if (lexeme.startsWith("\"")) {
-            reason = "Unterminated string literal";
+            return "Unterminated string literal";
         } else if (lexeme.startsWith("#*")) {
-            reason = "Unclosed multi-line comment";
-        } else if (lexeme.contains(".") && lexeme.matches(".*\\..*\\..*")) {
-            reason = "Malformed numeric literal (multiple decimal points)";
+            return "Unclosed multi-line comment";
+        } else if (hasTwoDots(lexeme)) {
+            return "Malformed numeric literal (multiple decimal points)";
         } else if (lexeme.length() > 31) {
-            reason = "Identifier exceeds maximum length (31)";
+            return "Identifier exceeds maximum length (31)";
         } else if (!lexeme.isEmpty() && Character.isLowerCase(lexeme.charAt(0))) {
-            reason = "Invalid identifier (must start with Uppercase)";
+            return "Invalid identifier (must start with Uppercase)";
         }
+        return "Invalid token";
+    }
 
-        report(token.getType(), token.getLine(), token.getColumn(), lexeme, reason);
+    // at least two '.' and no line terminator: what matches(".*\\..*\\..*") tested, without a regex per error
+    private static boolean hasTwoDots(String lexeme) {
+        int dots = 0;
+        for (int i = 0; i < lexeme.length(); i++) {
+            char c = lexeme.charAt(i);
+            if (c == '.') dots++;
+            else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return false;
+        }
+        return dots >= 2;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,285 @@
+package Scanner;
+
+import java.util.*;
+
+// Approximate identifier statistics in a fixed memory budget, for corpora with more distinct identifiers
+// than an exact SymbolTable should hold (batch --sketch):
+//   - Count-Min sketch (4 rows of long counters): frequency estimates, never low, and high by at most
+//     e / width of the total count with probability 1 - e^-4
+//   - HyperLogLog (one byte register each): distinct identifiers, ~1.04 / sqrt(registers) relative error
+//   - top-K: the heaviest identifiers seen so far, kept as up to 2K candidates ranked by their Count-Min
+//     estimate, with the first occurrence seen for each; the candidates also form a min-heap on the
+//     estimate, so an identifier that is not a candidate is compared with the lightest one in O(1)
+// The budget is a hard limit: a budget that cannot hold the candidates, the smallest HyperLogLog and
+// MIN_WIDTH counters per row is rejected (see minimumBytes) rather than exceeded.
+// Sketches built with the same budget merge exactly (counters add, registers take the max; candidates are
+// re-ranked on the merged counters), so each thread can fold its files into its own sketch.
+public class IdentifierSketch {
+
+    private static final int DEPTH = 4;
+    private static final int CANDIDATE_BYTES = 96; // rough per-candidate cost (entry, map & heap slot, short name)
+    private static final int MIN_WIDTH = 64;
+    private static final int MIN_REGISTERS = 1 << 4;
+
+    // a heavy-hitter candidate; file orders first occurrences across files (e.g. index in path order)
+    public static class Entry {
+        public final String name;
+        public long frequency; // Count-Min estimate
+        int file;
+        public int firstLine;
+        public int firstColumn;
+        int slot; // index in the candidate heap
+
+        Entry(String name, long frequency, int file, int line, int column) {
+            this.name = name;
+            this.frequency = frequency;
+            this.file = file;
+            this.firstLine = line;
+            this.firstColumn = column;
+        }
+
+        boolean before(int otherFile, int line, int column) {
+            if (file != otherFile) return file < otherFile;
+            return firstLine != line ? firstLine < line : firstColumn <= column;
+        }
+    }
+
+    private final int width;
+    private final long[] counters; // DEPTH rows of width
+    private final int precision; // HyperLogLog: 2^precision registers
+    private final byte[] registers;
+    private final int topK;
+    private final Map<String, Entry> candidates = new HashMap<>();
+    private final Entry[] heap; // the candidates, heap[0] the lightest
+    private int size;
+    private long total; // exact sum of all counts
+
+    // budgetBytes covers the counters, registers and candidates; at least minimumBytes(topK)
+    public IdentifierSketch(int budgetBytes, int topK) {
+        checkBudget(budgetBytes, topK);
+        this.topK = topK;
+        // registers: ~1/16 of the budget, 2^4 .. 2^16, as long as MIN_WIDTH counters per row still fit
+        long fixed = candidateBytes(topK) + MIN_WIDTH * 8L * DEPTH;
+        int p = 4;
+        while (p < 16 && (1L << (p + 1)) * 16 <= budgetBytes && fixed + (1L << (p + 1)) <= budgetBytes) p++;
+        this.precision = p;
+        this.registers = new byte[1 << p];
+        long rest = (long) budgetBytes - registers.length - candidateBytes(topK);
+        this.width = (int) Math.min(Integer.MAX_VALUE / DEPTH, rest / (8L * DEPTH));
+        this.counters = new long[DEPTH * width];
+        this.heap = new Entry[2 * topK];
+    }
+
+    // smallest budget for a top-K sketch: candidates, MIN_REGISTERS registers and MIN_WIDTH counters per row
+    public static long minimumBytes(int topK) {
+        return candidateBytes(topK) + MIN_REGISTERS + MIN_WIDTH * 8L * DEPTH;
+    }
+
+    public static void checkBudget(int budgetBytes, int topK) {
+        if (topK < 1) throw new IllegalArgumentException("top-K needs K >= 1");
+        if (budgetBytes < minimumBytes(topK)) {
+            throw new IllegalArgumentException("Sketch budget of " + budgetBytes + " bytes is below the "
+                    + minimumBytes(topK) + " bytes needed for the top " + topK);
+        }
+    }
+
+    private static long candidateBytes(int topK) {
+        return (long) CANDIDATE_BYTES * 2 * topK;
+    }
+
+    // count occurrences of name; file, line and column locate its first occurrence in that file
+    public void add(String name, long count, int file, int line, int column) {
+        long h = hash(name);
+        total += count;
+
+        // Count-Min: rows indexed by h1 + i * h2 (Kirsch-Mitzenmacher), estimate is the row minimum
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int slot = i * width + index(h1 + i * h2);
+            long c = counters[slot] += count;
+            if (c < estimate) estimate = c;
+        }
+
+        // HyperLogLog: top bits pick the register, the rank of the rest is kept if larger
+        int register = (int) (h >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((h << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[register]) registers[register] = rank;
+
+        offer(name, estimate, file, line, column);
+    }
+
+    // every identifier of a file's table (its own first occurrences)
+    public void add(SymbolTable table, int file) {
+        for (int id = 0; id < table.size(); id++) {
+            add(table.name(id), table.frequency(id), file, table.firstLine(id), table.firstColumn(id));
+        }
+    }
+
+    public void merge(IdentifierSketch other) {
+        if (other.width != width || other.precision != precision || other.topK != topK) {
+            throw new IllegalArgumentException("Sketches built with different budgets cannot be merged");
+        }
+        for (int i = 0; i < counters.length; i++) counters[i] += other.counters[i];
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+        total += other.total;
+        for (Entry e : other.candidates.values()) {
+            Entry mine = candidates.get(e.name);
+            if (mine == null) {
+                candidates.put(e.name, new Entry(e.name, 0, e.file, e.firstLine, e.firstColumn));
+            } else if (!mine.before(e.file, e.firstLine, e.firstColumn)) {
+                mine.file = e.file;
+                mine.firstLine = e.firstLine;
+                mine.firstColumn = e.firstColumn;
+            }
+        }
+        for (Entry e : candidates.values()) e.frequency = estimateFrequency(e.name);
+        List<Entry> ranked = ranked();
+        for (int i = 2 * topK; i < ranked.size(); i++) candidates.remove(ranked.get(i).name);
+        // re-heapify the survivors
+        size = 0;
+        for (Entry e : candidates.values()) {
+            e.slot = size;
+            heap[size++] = e;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) siftDown(i);
+    }
+
+    public long estimateFrequency(String name) {
+        long h = hash(name);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, counters[i * width + index(h1 + i * h2)]);
+        }
+        return estimate;
+    }
+
+    public long estimateDistinct() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += Math.scalb(1.0, -r);
+            if (r == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) estimate = m * Math.log((double) m / zeros); // linear counting
+        return Math.round(estimate);
+    }
+
+    public long getTotal() { return total; }
+
+    // how far a frequency estimate may be high (with probability 1 - e^-4)
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    public long getMemoryBytes() {
+        return counters.length * 8L + registers.length + candidateBytes(topK);
+    }
+
+    // the K heaviest identifiers, by estimated frequency (then name)
+    public List<Entry> topK() {
+        List<Entry> ranked = ranked();
+        return ranked.size() > topK ? ranked.subList(0, topK) : ranked;
+    }
+
+    // report in printSymbolTable() format (heaviest first); first occurrences are those of the first
+    // file, in file order, whose occurrence was counted while the identifier was a candidate
+    public void print() {
+        System.out.printf("%nSymbol Table (approximate: top %d of ~%d distinct identifiers, %d occurrences; "
+                        + "frequencies may be high by up to %d; %d KB of sketches):%n",
+                topK, estimateDistinct(), total, getErrorBound(), getMemoryBytes() / 1024);
+        for (Entry e : topK()) {
+            System.out.printf("Identifier: %s, First Occurrence: Line %d, Column %d, Frequency: %d%n",
+                    e.name, e.firstLine, e.firstColumn, e.frequency);
+        }
+    }
+
+    // keep name if it is a candidate or outranks the lightest of a full candidate set
+    private void offer(String name, long estimate, int file, int line, int column) {
+        Entry e = candidates.get(name);
+        if (e != null) {
+            e.frequency = estimate; // estimates only grow, so the entry can only move down the heap
+            siftDown(e.slot);
+            if (!e.before(file, line, column)) {
+                e.file = file;
+                e.firstLine = line;
+                e.firstColumn = column;
+            }
+            return;
+        }
+        e = new Entry(name, estimate, file, line, column);
+        if (size == heap.length) {
+            if (heap[0].frequency >= estimate) return;
+            candidates.remove(heap[0].name);
+            e.slot = 0;
+            heap[0] = e;
+            siftDown(0);
+        } else {
+            e.slot = size;
+            heap[size++] = e;
+            siftUp(e.slot);
+        }
+        candidates.put(name, e);
+    }
+
+    private void siftUp(int i) {
+        Entry e = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].frequency <= e.frequency) break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(e, i);
+    }
+
+    private void siftDown(int i) {
+        Entry e = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1].frequency < heap[child].frequency) child++;
+            if (e.frequency <= heap[child].frequency) break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(e, i);
+    }
+
+    private void place(Entry e, int i) {
+        heap[i] = e;
+        e.slot = i;
+    }
+
+    private List<Entry> ranked() {
+        List<Entry> ranked = new ArrayList<>(candidates.values());
+        ranked.sort((a, b) -> a.frequency != b.frequency ? Long.compare(b.frequency, a.frequency) : a.name.compareTo(b.name));
+        return ranked;
+    }
+
+    private int index(int h) {
+        return (int) (((h & 0xFFFFFFFFL) * width) >>> 32);
+    }
+
+    // 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,91 @@
+package Scanner;
+
+// Re-lexes a TokenStream after a text edit instead of rescanning the whole source.
+//
+// ManualScanner keeps no state between tokens: "inside a #* *# comment" or "inside a \"\"\" string" only
+// exists while one token is being scanned, and such a comment/string is a single token. Every token start
+// is therefore a safe restart point, and an edit inside a comment or multiline string simply re-lexes
+// that token (plus whatever it swallows or releases).
+//
+// - restart: the last token that ends before the edit, with its one char of lookahead, unaffected
+// - re-lex from there until a new token start lands on an old token start past the edit (shifted by the
+//   size change): from there on the text, and so the tokens, are the old ones
+// - the unchanged tail is moved and its offsets shifted; lines/cols come from the spliced LineIndex
+//
+// Lexing work is proportional to the edited region (plus any token it merges or splits); the source,
+// line-start and tail updates are plain array copies.
+public class IncrementalLexer {
+
+    private static final int LOOKAHEAD = 1; // chars a DFA may peek past the end of its token
+
+    private final TokenStream tokens;
+    private final ManualScanner.Engine engine;
+
+    // token index range [changedFrom, changedTo) that was re-lexed by the last edit
+    private int changedFrom;
+    private int changedTo;
+
+    // tokens: a stream from ManualScanner.scanTokenStream(); it is updated in place by edit()
+    public IncrementalLexer(TokenStream tokens, ManualScanner.Engine engine) {
+        this.tokens = tokens;
+        this.engine = engine;
+    }
+
+    public IncrementalLexer(String source) {
+        this(new ManualScanner(source).scanTokenStream(), ManualScanner.Engine.BRANCHING);
+    }
+
+    public TokenStream getTokens() { return tokens; }
+    public String getSource() { return new String(tokens.source()); }
+    public int getChangedFrom() { return changedFrom; }
+    public int getChangedTo() { return changedTo; }
+
+    // replace removedLength chars at offset with inserted, and bring the token stream up to date
+    public TokenStream edit(int offset, int removedLength, String inserted) {
+        char[] old = tokens.source();
+        if (offset < 0 || removedLength < 0 || offset + removedLength > old.length) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removedLength)
+                    + ") out of range (length " + old.length + ")");
+        }
+        int delta = inserted.length() - removedLength;
+        int oldEditEnd = offset + removedLength;
+        int newEditEnd = offset + inserted.length();
+
+        char[] source = new char[old.length + delta];
+        System.arraycopy(old, 0, source, 0, offset);
+        inserted.getChars(0, inserted.length(), source, offset);
+        System.arraycopy(old, oldEditEnd, source, newEditEnd, old.length - oldEditEnd);
+
+        // restart at the last token that neither covers nor peeks into the edit
+        int restart = tokens.lowerBound(0, offset) - 1;
+        while (restart >= 0 && tokens.getStart(restart) + tokens.getLength(restart) + LOOKAHEAD > offset) {
+            restart--;
+        }
+        int from = restart < 0 ? 0 : restart;
+        ManualScanner scanner = ManualScanner.forChunk(source, restart < 0 ? 0 : tokens.getStart(restart), engine);
+        scanner.setDecodeLiterals(tokens.hasValues());
+
+        // re-lex until in sync with an old token past the edit (or to the end of the source)
+        TokenStream relexed = new TokenStream(source, 16, tokens.hasValues());
+        int to = tokens.size();
+        int next;
+        while ((next = scanner.skipToNextToken()) < source.length) {
+            if (next >= newEditEnd) {
+                int match = tokens.lowerBound(from, next - delta);
+                if (match < tokens.size() && tokens.getStart(match) == next - delta) {
+                    to = match;
+                    break;
+                }
+            }
+            scanner.lexInto(relexed);
+        }
+
+        LineIndex lines = tokens.getLineIndex().splice(offset, removedLength, inserted);
+        int before = tokens.size();
+        tokens.splice(from, to, relexed, source, lines, delta);
+
+        changedFrom = from;
+        changedTo = to + (tokens.size() - before);
+        return tokens;
+    }
+}
@@ -0,0 +1,70 @@
+package Scanner;
+
+// Keyword/boolean recognition straight on a char range of the source buffer.
+// Perfect hash on (length, first char): every BILI keyword has a unique pair, so a lookup
+// is one array index plus a compare of the remaining chars, and no String is built.
+final class Keywords {
+
+    private Keywords() {}
+
+    private static final int MAX_LENGTH = 9; // "condition"
+
+    private static final String[] TEXT = new String[(MAX_LENGTH + 1) * 26];
+    private static final char[][] CHARS = new char[TEXT.length][];
+    private static final TokenType[] TYPE = new TokenType[TEXT.length];
+
+    static {
+        add("start", TokenType.START);
+        add("finish", TokenType.FINISH);
+        add("loop", TokenType.LOOP);
+        add("condition", TokenType.CONDITION);
+        add("declare", TokenType.DECLARE);
+        add("output", TokenType.OUTPUT);
+        add("input", TokenType.INPUT);
+        add("function", TokenType.FUNCTION);
+        add("return", TokenType.RETURN);
+        add("break", TokenType.BREAK);
+        add("continue", TokenType.CONTINUE);
+        add("else", TokenType.ELSE);
+        add("true", TokenType.BOOLEAN);
+        add("false", TokenType.BOOLEAN);
+    }
+
+    private static void add(String word, TokenType type) {
+        int slot = slot(word.length(), word.charAt(0));
+        if (TEXT[slot] != null) {
+            // a new keyword sharing (length, first char) needs a second-level check here
+            throw new IllegalStateException("Keyword hash collision: " + word + " / " + TEXT[slot]);
+        }
+        TEXT[slot] = word;
+        CHARS[slot] = word.toCharArray();
+        TYPE[slot] = type;
+    }
+
+    private static int slot(int length, char first) {
+        return length * 26 + (first - 'a');
+    }
+
+    // slot of the keyword spelled by buf[start, start + length), or -1 if it is not a keyword
+    static int find(char[] buf, int start, int length) {
+        if (length > MAX_LENGTH) return -1;
+        char first = buf[start];
+        if (first < 'a' || first > 'z') return -1;
+        int slot = slot(length, first);
+        char[] word = CHARS[slot];
+        if (word == null) return -1;
+        for (int i = 1; i < length; i++) {
+            if (buf[start + i] != word[i]) return -1;
+        }
+        return slot;
+    }
+
+    static TokenType type(int slot) {
+        return TYPE[slot];
+    }
+
+    // shared lexeme, so keyword tokens never allocate their text
+    static String lexeme(int slot) {
+        return TEXT[slot];
+    }
+}
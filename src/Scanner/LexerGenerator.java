@@ -0,0 +1,433 @@
+package Scanner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+// Builds LexerTables from a LexerSpec at run time, so a lexer change needs no code generation step:
+//   1. Thompson NFA of all rules (one accepting state per rule)
+//   2. char classes: the UTF-16 range is cut at every range bound of the spec, and pieces covered by
+//      exactly the same transitions share a class
+//   3. subset construction over the classes; a DFA state accepts the earliest rule among its NFA states
+//   4. Hopcroft minimization of the completed DFA (explicit dead state), split by accepted rule first;
+//      states that cannot reach an accepting state merge with the dead state, which becomes -1
+public final class LexerGenerator {
+
+    private LexerGenerator() {}
+
+    public static LexerTables generate(Path spec) throws IOException {
+        return generate(LexerSpec.read(spec));
+    }
+
+    public static LexerTables generate(LexerSpec spec) {
+        List<LexerSpec.Rule> rules = spec.rules();
+        Nfa nfa = new Nfa();
+        int start = nfa.state();
+        for (int r = 0; r < rules.size(); r++) {
+            int[] fragment = nfa.build(rules.get(r).regex);
+            nfa.epsilon(start, fragment[0]);
+            nfa.accept[fragment[1]] = r;
+        }
+
+        Classes classes = new Classes(nfa);
+        Dfa dfa = subsets(nfa, start, classes);
+        int[][] minimal = minimize(dfa, classes.count);
+
+        TokenType[] types = new TokenType[rules.size()];
+        String[] reasons = new String[rules.size()];
+        for (int r = 0; r < rules.size(); r++) {
+            types[r] = rules.get(r).type;
+            reasons[r] = rules.get(r).reason;
+        }
+        return new LexerTables(classes.blockIndex, classes.classMap, classes.count, minimal[0], minimal[1],
+                types, reasons, nfa.size, dfa.size);
+    }
+
+    // ---- 1. NFA: states with up to one char transition (a range set) and any number of epsilon edges ----
+
+    private static final class Nfa {
+        int size;
+        int[][] ranges = new int[256][]; // char transition label, null if none
+        int[] target = new int[256];
+        int[][] epsilons = new int[256][];
+        int[] epsilonCounts = new int[256];
+        int[] accept = new int[256]; // rule index, -1
+
+        int state() {
+            if (size == target.length) {
+                int capacity = size * 2;
+                ranges = Arrays.copyOf(ranges, capacity);
+                target = Arrays.copyOf(target, capacity);
+                epsilons = Arrays.copyOf(epsilons, capacity);
+                epsilonCounts = Arrays.copyOf(epsilonCounts, capacity);
+                accept = Arrays.copyOf(accept, capacity);
+            }
+            accept[size] = -1;
+            target[size] = -1;
+            return size++;
+        }
+
+        void epsilon(int from, int to) {
+            int[] edges = epsilons[from];
+            int n = epsilonCounts[from];
+            if (edges == null) edges = epsilons[from] = new int[2];
+            else if (n == edges.length) edges = epsilons[from] = Arrays.copyOf(edges, n * 2);
+            edges[n] = to;
+            epsilonCounts[from] = n + 1;
+        }
+
+        // fresh states for regex: {start, end}
+        int[] build(LexerSpec.Regex regex) {
+            if (regex instanceof LexerSpec.CharSet) {
+                int s = state();
+                int e = state();
+                ranges[s] = ((LexerSpec.CharSet) regex).ranges;
+                target[s] = e;
+                return new int[]{s, e};
+            }
+            if (regex instanceof LexerSpec.Concat) {
+                int[] first = null;
+                int end = -1;
+                for (LexerSpec.Regex part : ((LexerSpec.Concat) regex).parts) {
+                    int[] f = build(part);
+                    if (first == null) first = f;
+                    else epsilon(end, f[0]);
+                    end = f[1];
+                }
+                return new int[]{first[0], end};
+            }
+            if (regex instanceof LexerSpec.Alt) {
+                int s = state();
+                int e = state();
+                for (LexerSpec.Regex option : ((LexerSpec.Alt) regex).options) {
+                    int[] f = build(option);
+                    epsilon(s, f[0]);
+                    epsilon(f[1], e);
+                }
+                return new int[]{s, e};
+            }
+            LexerSpec.Repeat repeat = (LexerSpec.Repeat) regex;
+            int s = state();
+            int cur = s;
+            for (int i = 0; i < repeat.min; i++) {
+                int[] f = build(repeat.body);
+                epsilon(cur, f[0]);
+                cur = f[1];
+            }
+            if (repeat.max < 0) {
+                int loop = state();
+                int[] f = build(repeat.body);
+                epsilon(cur, loop);
+                epsilon(loop, f[0]);
+                epsilon(f[1], loop);
+                return new int[]{s, loop};
+            }
+            // optional copies, each of which may be the last
+            int e = state();
+            for (int i = repeat.min; i < repeat.max; i++) {
+                int[] f = build(repeat.body);
+                epsilon(cur, e);
+                epsilon(cur, f[0]);
+                cur = f[1];
+            }
+            epsilon(cur, e);
+            return new int[]{s, e};
+        }
+
+        // add the epsilon closure of set (in place)
+        void close(BitSet set, int[] stack) {
+            int top = 0;
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) stack[top++] = s;
+            while (top > 0) {
+                int s = stack[--top];
+                int[] edges = epsilons[s];
+                for (int i = 0; i < epsilonCounts[s]; i++) {
+                    int t = edges[i];
+                    if (!set.get(t)) {
+                        set.set(t);
+                        stack[top++] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    // ---- 2. char classes ----
+
+    private static final class Classes {
+        int count;
+        int[][] labelClasses; // per NFA state with a char transition: the classes of its label
+        char[] blockIndex;
+        short[] classMap;
+
+        Classes(Nfa nfa) {
+            // cut points: 0, every lo and hi + 1, end of the char range
+            TreeSet<Integer> cuts = new TreeSet<>();
+            cuts.add(0);
+            cuts.add(LexerSpec.MAX_CHAR + 1);
+            for (int s = 0; s < nfa.size; s++) {
+                int[] r = nfa.ranges[s];
+                if (r == null) continue;
+                for (int i = 0; i < r.length; i += 2) {
+                    cuts.add(r[i]);
+                    cuts.add(r[i + 1] + 1);
+                }
+            }
+            int[] bounds = new int[cuts.size()];
+            int k = 0;
+            for (int cut : cuts) bounds[k++] = cut;
+            int pieces = bounds.length - 1;
+
+            // which transitions cover each piece
+            BitSet[] covered = new BitSet[pieces];
+            for (int p = 0; p < pieces; p++) covered[p] = new BitSet();
+            for (int s = 0; s < nfa.size; s++) {
+                int[] r = nfa.ranges[s];
+                if (r == null) continue;
+                for (int i = 0; i < r.length; i += 2) {
+                    int from = Arrays.binarySearch(bounds, r[i]);
+                    int to = Arrays.binarySearch(bounds, r[i + 1] + 1);
+                    for (int p = from; p < to; p++) covered[p].set(s);
+                }
+            }
+
+            // pieces with equal coverage share a class
+            Map<BitSet, Integer> ids = new HashMap<>();
+            int[] pieceClass = new int[pieces];
+            for (int p = 0; p < pieces; p++) {
+                Integer id = ids.get(covered[p]);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(covered[p], id);
+                }
+                pieceClass[p] = id;
+            }
+            count = ids.size();
+
+            labelClasses = new int[nfa.size][];
+            for (int s = 0; s < nfa.size; s++) {
+                if (nfa.ranges[s] == null) continue;
+                BitSet classes = new BitSet();
+                for (int p = 0; p < pieces; p++) {
+                    if (covered[p].get(s)) classes.set(pieceClass[p]);
+                }
+                labelClasses[s] = classes.stream().toArray();
+            }
+
+            // two-level char -> class map, identical 256-char blocks shared
+            short[] all = new short[LexerSpec.MAX_CHAR + 1];
+            for (int p = 0; p < pieces; p++) {
+                Arrays.fill(all, bounds[p], bounds[p + 1], (short) pieceClass[p]);
+            }
+            blockIndex = new char[256];
+            Map<String, Integer> blocks = new HashMap<>();
+            short[] map = new short[all.length];
+            for (int b = 0; b < 256; b++) {
+                char[] key = new char[256];
+                for (int i = 0; i < 256; i++) key[i] = (char) all[(b << 8) | i];
+                Integer id = blocks.get(new String(key));
+                if (id == null) {
+                    id = blocks.size();
+                    blocks.put(new String(key), id);
+                    System.arraycopy(all, b << 8, map, id << 8, 256);
+                }
+                blockIndex[b] = (char) (int) id;
+            }
+            classMap = Arrays.copyOf(map, blocks.size() << 8);
+        }
+    }
+
+    // ---- 3. subset construction ----
+
+    private static final class Dfa {
+        int size;
+        int[] next; // size * classes, -1: no NFA state left
+        int[] accept;
+    }
+
+    private static Dfa subsets(Nfa nfa, int start, Classes classes) {
+        int c = classes.count;
+        int[] stack = new int[nfa.size];
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> sets = new ArrayList<>();
+        BitSet first = new BitSet();
+        first.set(start);
+        nfa.close(first, stack);
+        ids.put(first, 0);
+        sets.add(first);
+
+        int[] next = new int[64 * c];
+        BitSet[] moves = new BitSet[c];
+        for (int d = 0; d < sets.size(); d++) {
+            BitSet set = sets.get(d);
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                int[] labels = classes.labelClasses[s];
+                if (labels == null) continue;
+                for (int k : labels) {
+                    if (moves[k] == null) moves[k] = new BitSet();
+                    moves[k].set(nfa.target[s]);
+                }
+            }
+            if ((d + 1) * c > next.length) next = Arrays.copyOf(next, next.length * 2);
+            for (int k = 0; k < c; k++) {
+                BitSet move = moves[k];
+                if (move == null) {
+                    next[d * c + k] = -1;
+                    continue;
+                }
+                moves[k] = null;
+                nfa.close(move, stack);
+                Integer id = ids.get(move);
+                if (id == null) {
+                    id = sets.size();
+                    ids.put(move, id);
+                    sets.add(move);
+                }
+                next[d * c + k] = id;
+            }
+        }
+
+        Dfa dfa = new Dfa();
+        dfa.size = sets.size();
+        dfa.next = Arrays.copyOf(next, dfa.size * c);
+        dfa.accept = new int[dfa.size];
+        for (int d = 0; d < dfa.size; d++) {
+            int rule = -1;
+            BitSet set = sets.get(d);
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                int a = nfa.accept[s];
+                if (a >= 0 && (rule < 0 || a < rule)) rule = a;
+            }
+            dfa.accept[d] = rule;
+        }
+        return dfa;
+    }
+
+    // ---- 4. Hopcroft minimization; returns {next, accept} of the minimal DFA ----
+
+    private static int[][] minimize(Dfa dfa, int c) {
+        int n = dfa.size + 1; // + dead state
+        int dead = dfa.size;
+
+        // predecessors per (class, state) as linked lists
+        int[] head = new int[c * n];
+        Arrays.fill(head, -1);
+        int[] link = new int[c * n];
+        int[] source = new int[c * n];
+        int edges = 0;
+        for (int s = 0; s < n; s++) {
+            for (int k = 0; k < c; k++) {
+                int t = s == dead ? dead : dfa.next[s * c + k];
+                if (t < 0) t = dead;
+                source[edges] = s;
+                link[edges] = head[k * n + t];
+                head[k * n + t] = edges++;
+            }
+        }
+
+        // partition: elements[first[b], end[b]) are the states of block b
+        int[] elements = new int[n];
+        int[] where = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+        boolean[] waiting = new boolean[n];
+        int blocks = 0;
+
+        // initial blocks: states accepting the same rule (non-accepting and dead together)
+        Map<Integer, List<Integer>> byRule = new TreeMap<>();
+        for (int s = 0; s < n; s++) {
+            int rule = s == dead ? -1 : dfa.accept[s];
+            byRule.computeIfAbsent(rule, r -> new ArrayList<>()).add(s);
+        }
+        int pos = 0;
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        for (List<Integer> group : byRule.values()) {
+            first[blocks] = pos;
+            for (int s : group) {
+                elements[pos] = s;
+                where[s] = pos++;
+                blockOf[s] = blocks;
+            }
+            end[blocks] = pos;
+            work.add(blocks);
+            waiting[blocks] = true;
+            blocks++;
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (!work.isEmpty()) {
+            int a = work.poll();
+            waiting[a] = false;
+            int size = end[a] - first[a];
+            System.arraycopy(elements, first[a], splitter, 0, size);
+            for (int k = 0; k < c; k++) {
+                int touchedCount = 0;
+                for (int i = 0; i < size; i++) {
+                    for (int e = head[k * n + splitter[i]]; e >= 0; e = link[e]) {
+                        int p = source[e];
+                        int b = blockOf[p];
+                        int boundary = first[b] + marked[b];
+                        if (where[p] < boundary) continue; // already marked
+                        // swap p to the marked front of its block
+                        int q = elements[boundary];
+                        elements[where[p]] = q;
+                        where[q] = where[p];
+                        elements[boundary] = p;
+                        where[p] = boundary;
+                        if (marked[b]++ == 0) touched[touchedCount++] = b;
+                    }
+                }
+                for (int t = 0; t < touchedCount; t++) {
+                    int b = touched[t];
+                    int m = marked[b];
+                    marked[b] = 0;
+                    if (m == end[b] - first[b]) continue;
+                    int nb = blocks++;
+                    first[nb] = first[b];
+                    end[nb] = first[b] + m;
+                    first[b] = end[nb];
+                    for (int i = first[nb]; i < end[nb]; i++) blockOf[elements[i]] = nb;
+                    if (waiting[b] || m <= end[b] - first[b]) {
+                        work.add(nb);
+                        waiting[nb] = true;
+                    } else {
+                        work.add(b);
+                        waiting[b] = true;
+                    }
+                }
+            }
+        }
+
+        // number the blocks breadth-first from the start state; the dead block is -1
+        int deadBlock = blockOf[dead];
+        int[] number = new int[blocks];
+        Arrays.fill(number, -1);
+        int[] order = new int[blocks];
+        int count = 0;
+        number[blockOf[0]] = count;
+        order[count++] = blockOf[0];
+        int[] next = new int[blocks * c];
+        for (int i = 0; i < count; i++) {
+            int s = elements[first[order[i]]];
+            for (int k = 0; k < c; k++) {
+                int t = dfa.next[s * c + k];
+                int b = t < 0 ? deadBlock : blockOf[t];
+                if (b == deadBlock) {
+                    next[i * c + k] = -1;
+                    continue;
+                }
+                if (number[b] < 0) {
+                    number[b] = count;
+                    order[count++] = b;
+                }
+                next[i * c + k] = number[b];
+            }
+        }
+        int[] accept = new int[count];
+        for (int i = 0; i < count; i++) accept[i] = dfa.accept[elements[first[order[i]]]];
+        return new int[][]{Arrays.copyOf(next, count * c), accept};
+    }
+}
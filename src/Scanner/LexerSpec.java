@@ -0,0 +1,510 @@
+package Scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Token spec for LexerGenerator, read from a JFlex file such as Scanner.flex: the macros of section 2
+// (Name = regex) and the rules of section 3 (regex { action }), in priority order. Options and code blocks
+// are skipped and actions are only read for what they return: createToken(TokenType.X) gives an X token,
+// createError("reason") an ERROR token with that reason, an action without a return (e.g. { /* skip */ })
+// drops the match. <<EOF>> rules are ignored (the driver stops at end of input).
+//
+// Regex syntax: "strings", [classes] (ranges, ^, escapes, [^] for any char), ., {Macro}, escapes
+// (\n \t \r \b \f, u + 4 hex digits for a Unicode escape, any other char stands for itself), ( ), |,
+// *, +, ?, {n} and {n,m}; spaces between elements are ignored. A char is a UTF-16 unit, as in the other
+// scanners.
+public final class LexerSpec {
+
+    static final int MAX_CHAR = 0xFFFF;
+
+    // one lexical rule: the longest match wins, equal lengths go to the earlier rule
+    static final class Rule {
+        final Regex regex;
+        final TokenType type; // null: drop the match
+        final String reason; // for ERROR tokens
+        final int line; // in the spec
+
+        Rule(Regex regex, TokenType type, String reason, int line) {
+            this.regex = regex;
+            this.type = type;
+            this.reason = reason;
+            this.line = line;
+        }
+    }
+
+    // regex syntax tree; macros are expanded while parsing, so a tree may share subtrees
+    abstract static class Regex {}
+
+    static final class CharSet extends Regex {
+        final int[] ranges; // sorted, disjoint, non-adjacent [lo, hi] pairs
+
+        CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+    }
+
+    static final class Concat extends Regex {
+        final List<Regex> parts;
+
+        Concat(List<Regex> parts) {
+            this.parts = parts;
+        }
+    }
+
+    static final class Alt extends Regex {
+        final List<Regex> options;
+
+        Alt(List<Regex> options) {
+            this.options = options;
+        }
+    }
+
+    static final class Repeat extends Regex {
+        final Regex body;
+        final int min;
+        final int max; // -1: unbounded
+
+        Repeat(Regex body, int min, int max) {
+            this.body = body;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final Pattern MACRO = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)\\s*=\\s*(.*)");
+    private static final Pattern CREATE_TOKEN = Pattern.compile("createToken\\s*\\(\\s*TokenType\\.(\\w+)\\s*\\)");
+    private static final Pattern CREATE_ERROR = Pattern.compile("createError\\s*\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*\\)");
+
+    private final String name; // for error messages
+    private final Map<String, String> macroSources = new LinkedHashMap<>();
+    private final Map<String, Integer> macroLines = new HashMap<>();
+    private final Map<String, Regex> macros = new HashMap<>(); // expanded on first use
+    private final Set<String> expanding = new HashSet<>();
+    private final List<Rule> rules = new ArrayList<>();
+
+    private LexerSpec(String name) {
+        this.name = name;
+    }
+
+    public static LexerSpec read(Path path) throws IOException {
+        return parse(Files.readString(path), path.toString());
+    }
+
+    public static LexerSpec parse(String text, String name) {
+        LexerSpec spec = new LexerSpec(name);
+        int sectionTwo = sectionBreak(text, 0);
+        int sectionThree = sectionTwo < 0 ? -1 : sectionBreak(text, sectionTwo);
+        if (sectionThree < 0) throw spec.error(text, text.length(), "expected three sections separated by %%");
+        spec.readMacros(text, sectionTwo, sectionThree - 2);
+        spec.readRules(text, sectionThree);
+        if (spec.rules.isEmpty()) throw spec.error(text, text.length(), "no lexical rules");
+        return spec;
+    }
+
+    public String getName() { return name; }
+    public int getRuleCount() { return rules.size(); }
+    List<Rule> rules() { return rules; }
+
+    // index just after the next "%%" that starts a line at or after from, -1 if none
+    private static int sectionBreak(String text, int from) {
+        int i = from;
+        while ((i = text.indexOf("%%", i)) >= 0) {
+            if (i == 0 || text.charAt(i - 1) == '\n') return i + 2;
+            i += 2;
+        }
+        return -1;
+    }
+
+    // ---- section 2: options, %{ code %}, comments and macros, one per line ----
+
+    private void readMacros(String text, int from, int to) {
+        boolean inCode = false;
+        boolean inComment = false;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > to) lineEnd = to;
+            String line = text.substring(lineStart, lineEnd).trim();
+            int start = lineStart;
+            lineStart = lineEnd + 1;
+
+            if (inCode) {
+                inCode = !line.startsWith("%}");
+                continue;
+            }
+            if (inComment) {
+                inComment = !line.contains("*/");
+                continue;
+            }
+            if (line.isEmpty() || line.startsWith("//")) continue;
+            if (line.startsWith("/*")) {
+                inComment = !line.contains("*/");
+                continue;
+            }
+            if (line.startsWith("%{")) {
+                inCode = !line.contains("%}");
+                continue;
+            }
+            if (line.startsWith("%")) continue; // option
+            Matcher m = MACRO.matcher(line);
+            if (!m.matches()) throw error(text, start, "expected a macro definition (Name = regex)");
+            macroSources.put(m.group(1), m.group(2));
+            macroLines.put(m.group(1), lineOf(text, start));
+        }
+    }
+
+    // ---- section 3: regex { action } rules, comments between them ----
+
+    private void readRules(String text, int from) {
+        int p = from;
+        while (true) {
+            p = skipSpaceAndComments(text, p);
+            if (p >= text.length()) return;
+            int line = lineOf(text, p);
+            if (text.startsWith("<<EOF>>", p)) {
+                p = skipSpaceAndComments(text, p + "<<EOF>>".length());
+                p = action(text, p)[1];
+                continue;
+            }
+            RegexParser parser = new RegexParser(text, p);
+            Regex regex = parser.alternation();
+            p = skipSpaceAndComments(text, parser.pos);
+            int[] action = action(text, p);
+            rules.add(rule(regex, text.substring(action[0], action[1]), text, p, line));
+            p = action[1];
+        }
+    }
+
+    // [start, end) of the { ... } action at p, braces inside Java strings and comments not counted
+    private int[] action(String text, int p) {
+        if (p >= text.length() || text.charAt(p) != '{') throw error(text, p, "expected an action { ... }");
+        int depth = 0;
+        for (int i = p; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                for (i++; i < text.length() && text.charAt(i) != c; i++) {
+                    if (text.charAt(i) == '\\') i++;
+                }
+            } else if (text.startsWith("/*", i)) {
+                int end = text.indexOf("*/", i + 2);
+                i = end < 0 ? text.length() : end + 1;
+            } else if (text.startsWith("//", i)) {
+                int end = text.indexOf('\n', i);
+                i = end < 0 ? text.length() : end;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return new int[]{p, i + 1};
+            }
+        }
+        throw error(text, p, "unterminated action");
+    }
+
+    private Rule rule(Regex regex, String action, String text, int p, int line) {
+        Matcher token = CREATE_TOKEN.matcher(action);
+        if (token.find()) {
+            try {
+                return new Rule(regex, TokenType.valueOf(token.group(1)), null, line);
+            } catch (IllegalArgumentException e) {
+                throw error(text, p, "unknown token type " + token.group(1));
+            }
+        }
+        Matcher err = CREATE_ERROR.matcher(action);
+        if (err.find()) return new Rule(regex, TokenType.ERROR, unescapeJava(err.group(1)), line);
+        if (action.contains("return")) throw error(text, p, "unsupported action " + action.trim());
+        return new Rule(regex, null, null, line);
+    }
+
+    private static String unescapeJava(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                out.append(e == 'n' ? '\n' : e == 't' ? '\t' : e == 'r' ? '\r' : e);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static int skipSpaceAndComments(String text, int p) {
+        while (p < text.length()) {
+            char c = text.charAt(p);
+            if (Character.isWhitespace(c)) {
+                p++;
+            } else if (text.startsWith("/*", p)) {
+                int end = text.indexOf("*/", p + 2);
+                p = end < 0 ? text.length() : end + 2;
+            } else if (text.startsWith("//", p)) {
+                int end = text.indexOf('\n', p);
+                p = end < 0 ? text.length() : end + 1;
+            } else {
+                break;
+            }
+        }
+        return p;
+    }
+
+    private Regex macro(String name, String text, int p) {
+        Regex regex = macros.get(name);
+        if (regex != null) return regex;
+        String source = macroSources.get(name);
+        if (source == null) throw error(text, p, "undefined macro {" + name + "}");
+        if (!expanding.add(name)) throw error(text, p, "macro {" + name + "} refers to itself");
+        RegexParser parser = new RegexParser(source, 0);
+        parser.macroLine = macroLines.get(name);
+        regex = parser.alternation();
+        if (parser.pos < source.length()) throw parser.fail("unexpected '" + source.charAt(parser.pos) + "'");
+        expanding.remove(name);
+        macros.put(name, regex);
+        return regex;
+    }
+
+    private IllegalArgumentException error(String text, int p, String message) {
+        return new IllegalArgumentException(name + ":" + lineOf(text, p) + ": " + message);
+    }
+
+    private static int lineOf(String text, int p) {
+        int line = 1;
+        for (int i = 0; i < p && i < text.length(); i++) {
+            if (text.charAt(i) == '\n') line++;
+        }
+        return line;
+    }
+
+    // recursive descent over one regex: alternation > concatenation > postfix > atom
+    private final class RegexParser {
+        private final String s;
+        private int pos;
+        private int macroLine; // > 0 while parsing a macro body (for error messages)
+
+        RegexParser(String s, int pos) {
+            this.s = s;
+            this.pos = pos;
+        }
+
+        Regex alternation() {
+            List<Regex> options = new ArrayList<>();
+            options.add(concatenation());
+            while (peek() == '|') {
+                pos++;
+                options.add(concatenation());
+            }
+            return options.size() == 1 ? options.get(0) : new Alt(options);
+        }
+
+        // ends at '|', ')', end of line/text, or the '{' of an action
+        private Regex concatenation() {
+            List<Regex> parts = new ArrayList<>();
+            while (true) {
+                skipSpaces();
+                char c = peek();
+                if (c == 0 || c == '|' || c == ')' || c == '\n' || (c == '{' && !atMacroReference())) break;
+                parts.add(postfix());
+            }
+            if (parts.isEmpty()) throw fail("empty regular expression");
+            return parts.size() == 1 ? parts.get(0) : new Concat(parts);
+        }
+
+        private Regex postfix() {
+            Regex regex = atom();
+            while (true) {
+                char c = peek();
+                if (c == '*') {
+                    pos++;
+                    regex = new Repeat(regex, 0, -1);
+                } else if (c == '+') {
+                    pos++;
+                    regex = new Repeat(regex, 1, -1);
+                } else if (c == '?') {
+                    pos++;
+                    regex = new Repeat(regex, 0, 1);
+                } else if (c == '{' && pos + 1 < s.length() && Character.isDigit(s.charAt(pos + 1))) {
+                    pos++;
+                    int min = number();
+                    int max = min;
+                    if (peek() == ',') {
+                        pos++;
+                        max = number();
+                    }
+                    expect('}');
+                    if (max < min) throw fail("bad repetition {" + min + "," + max + "}");
+                    regex = new Repeat(regex, min, max);
+                } else {
+                    return regex;
+                }
+            }
+        }
+
+        private Regex atom() {
+            char c = next();
+            switch (c) {
+                case '(': {
+                    Regex regex = alternation();
+                    expect(')');
+                    return regex;
+                }
+                case '"': {
+                    List<Regex> chars = new ArrayList<>();
+                    while (peek() != '"') {
+                        if (pos >= s.length() || peek() == '\n') throw fail("unterminated string");
+                        char d = next();
+                        chars.add(single(d == '\\' ? escape() : d));
+                    }
+                    pos++;
+                    if (chars.isEmpty()) throw fail("empty string");
+                    return chars.size() == 1 ? chars.get(0) : new Concat(chars);
+                }
+                case '[':
+                    return charClass();
+                case '{': {
+                    int end = s.indexOf('}', pos);
+                    String macro = s.substring(pos, end);
+                    pos = end + 1;
+                    return LexerSpec.this.macro(macro, s, pos);
+                }
+                case '\\':
+                    return single(escape());
+                case '.':
+                    return new CharSet(complement(new int[]{'\n', '\n'}));
+                default:
+                    if ("*+?|)".indexOf(c) >= 0) throw fail("unexpected '" + c + "'");
+                    return single(c);
+            }
+        }
+
+        private Regex charClass() {
+            boolean negate = peek() == '^';
+            if (negate) pos++;
+            List<int[]> ranges = new ArrayList<>();
+            while (peek() != ']') {
+                if (pos >= s.length() || peek() == '\n') throw fail("unterminated character class");
+                char c = next();
+                if (c == '"') {
+                    while (peek() != '"') {
+                        char d = next();
+                        char ch = d == '\\' ? escape() : d;
+                        ranges.add(new int[]{ch, ch});
+                    }
+                    pos++;
+                    continue;
+                }
+                char lo = c == '\\' ? escape() : c;
+                char hi = lo;
+                if (peek() == '-' && pos + 1 < s.length() && s.charAt(pos + 1) != ']') {
+                    pos++;
+                    char d = next();
+                    hi = d == '\\' ? escape() : d;
+                    if (hi < lo) throw fail("bad range " + lo + "-" + hi);
+                }
+                ranges.add(new int[]{lo, hi});
+            }
+            pos++;
+            int[] set = normalize(ranges);
+            return new CharSet(negate ? complement(set) : set);
+        }
+
+        // char after a backslash
+        private char escape() {
+            char c = next();
+            switch (c) {
+                case 'n': return '\n';
+                case 't': return '\t';
+                case 'r': return '\r';
+                case 'b': return '\b';
+                case 'f': return '\f';
+                case 'u': {
+                    if (pos + 4 > s.length()) throw fail("bad \\u escape");
+                    try {
+                        char u = (char) Integer.parseInt(s.substring(pos, pos + 4), 16);
+                        pos += 4;
+                        return u;
+                    } catch (NumberFormatException e) {
+                        throw fail("bad \\u escape");
+                    }
+                }
+                default: return c;
+            }
+        }
+
+        private boolean atMacroReference() {
+            int i = pos + 1;
+            if (i >= s.length() || !Character.isLetter(s.charAt(i))) return false;
+            while (i < s.length() && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '_')) i++;
+            return i < s.length() && s.charAt(i) == '}';
+        }
+
+        private int number() {
+            int start = pos;
+            while (Character.isDigit(peek())) pos++;
+            if (start == pos) throw fail("expected a number");
+            return Integer.parseInt(s.substring(start, pos));
+        }
+
+        private void skipSpaces() {
+            while (peek() == ' ' || peek() == '\t' || peek() == '\r') pos++;
+        }
+
+        private char peek() {
+            return pos < s.length() ? s.charAt(pos) : 0;
+        }
+
+        private char next() {
+            if (pos >= s.length()) throw fail("unexpected end of regular expression");
+            return s.charAt(pos++);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw fail("expected '" + c + "'");
+            pos++;
+        }
+
+        // the error to throw at the current position
+        IllegalArgumentException fail(String message) {
+            if (macroLine > 0) return new IllegalArgumentException(name + ":" + macroLine + ": " + message);
+            return error(s, pos, message);
+        }
+    }
+
+    private static Regex single(char c) {
+        return new CharSet(new int[]{c, c});
+    }
+
+    // sorted, merged pairs of the given [lo, hi] ranges
+    private static int[] normalize(List<int[]> ranges) {
+        ranges.sort(Comparator.comparingInt(r -> r[0]));
+        int[] out = new int[ranges.size() * 2];
+        int n = 0;
+        for (int[] r : ranges) {
+            if (n > 0 && r[0] <= out[n - 1] + 1) {
+                out[n - 1] = Math.max(out[n - 1], r[1]);
+            } else {
+                out[n++] = r[0];
+                out[n++] = r[1];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] complement(int[] set) {
+        List<int[]> out = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > next) out.add(new int[]{next, set[i] - 1});
+            next = set[i + 1] + 1;
+        }
+        if (next <= MAX_CHAR) out.add(new int[]{next, MAX_CHAR});
+        int[] result = new int[out.size() * 2];
+        for (int i = 0; i < out.size(); i++) {
+            result[2 * i] = out.get(i)[0];
+            result[2 * i + 1] = out.get(i)[1];
+        }
+        return result;
+    }
+}
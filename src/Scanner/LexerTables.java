@@ -0,0 +1,53 @@
+package Scanner;
+
+// Transition tables of a generated lexer (LexerGenerator), run by TableLexer. Chars map to classes
+// (chars no rule tells apart share one) through a two-level table: blockIndex[c >>> 8] picks a
+// 256-entry block of classMap, identical blocks are stored once. next[state * classCount + class] is the
+// next state, -1 where no rule can match any more; accept[state] is the rule matched by the chars read
+// so far (-1: none). State 0 is the start state.
+public final class LexerTables {
+
+    final char[] blockIndex;
+    final short[] classMap;
+    final int classCount;
+    final int[] next;
+    final int[] accept;
+    final TokenType[] ruleTypes; // per rule, null: drop the match
+    final String[] ruleReasons;
+    private final int nfaStates;
+    private final int dfaStates; // before minimization
+
+    LexerTables(char[] blockIndex, short[] classMap, int classCount, int[] next, int[] accept,
+                TokenType[] ruleTypes, String[] ruleReasons, int nfaStates, int dfaStates) {
+        this.blockIndex = blockIndex;
+        this.classMap = classMap;
+        this.classCount = classCount;
+        this.next = next;
+        this.accept = accept;
+        this.ruleTypes = ruleTypes;
+        this.ruleReasons = ruleReasons;
+        this.nfaStates = nfaStates;
+        this.dfaStates = dfaStates;
+    }
+
+    int classOf(char c) {
+        return classMap[(blockIndex[c >>> 8] << 8) | (c & 0xFF)];
+    }
+
+    public int getStateCount() { return accept.length; }
+    public int getClassCount() { return classCount; }
+    public int getRuleCount() { return ruleTypes.length; }
+    public int getNfaStateCount() { return nfaStates; }
+    public int getDfaStateCount() { return dfaStates; }
+
+    // bytes held by the tables
+    public long getTableSize() {
+        return blockIndex.length * 2L + classMap.length * 2L + next.length * 4L + accept.length * 4L;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rules, %d NFA states, %d DFA states (%d minimized), %d char classes, %d table bytes",
+                getRuleCount(), nfaStates, dfaStates, getStateCount(), classCount, getTableSize());
+    }
+}
@@ -0,0 +1,120 @@
+package Scanner;
+
+import java.util.Arrays;
+
+// Line starts of a source, built with one newline scan: tokens keep only their offset and line/col are
+// looked up (binary search) when a token is printed or a diagnostic is reported.
+// Columns count chars from the line start, as the scanner always has ('\t' and '\r' are one column).
+public final class LineIndex {
+
+    private final int[] starts; // starts[k]: offset of line k + 1; starts[0] == 0
+    private final int count;
+    private int hint; // line index of the last lookup (lookups mostly move forward through the source)
+
+    LineIndex(int[] starts, int count) {
+        this.starts = starts;
+        this.count = count;
+    }
+
+    public static LineIndex of(char[] source, int length) {
+        return new Builder().add(source, 0, length).build();
+    }
+
+    // collects line starts in increasing order; ParallelScanner fills one per chunk and joins them
+    static final class Builder {
+        private int[] starts = new int[64];
+        private int count = 1; // line 1 starts at 0
+
+        // line starts after the newlines in source[from, to)
+        Builder add(char[] source, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (source[i] == '\n') {
+                    if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                    starts[count++] = i + 1;
+                }
+            }
+            return this;
+        }
+
+        // append the line starts of a later chunk (its implicit first line is skipped)
+        Builder add(Builder later) {
+            int n = later.count - 1;
+            if (count + n > starts.length) starts = Arrays.copyOf(starts, Math.max(count + n, count * 2));
+            System.arraycopy(later.starts, 1, starts, count, n);
+            count += n;
+            return this;
+        }
+
+        // back to a single line (the array is kept: indexes built from it before are invalid)
+        Builder clear() {
+            count = 1;
+            return this;
+        }
+
+        int newlines() {
+            return count - 1;
+        }
+
+        LineIndex build() {
+            return new LineIndex(starts, count);
+        }
+    }
+
+    public int lineCount() {
+        return count;
+    }
+
+    // 1-based line of offset
+    public int line(int offset) {
+        int h = hint;
+        if (starts[h] <= offset && (h + 1 == count || offset < starts[h + 1])) return h + 1;
+        h = search(offset);
+        hint = h;
+        return h + 1;
+    }
+
+    // index of the last line start <= offset
+    private int search(int offset) {
+        int lo = 0, hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= offset) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // 1-based column of offset
+    public int column(int offset) {
+        return offset - starts[line(offset) - 1] + 1;
+    }
+
+    // offset where (1-based) line begins
+    public int lineStart(int line) {
+        if (line < 1 || line > count) throw new IndexOutOfBoundsException("Line " + line + " out of range (lines " + count + ")");
+        return starts[line - 1];
+    }
+
+    // index of the text after replacing source[offset, offset + removedLength) with inserted
+    LineIndex splice(int offset, int removedLength, CharSequence inserted) {
+        int keep = search(offset) + 1; // line starts at or before offset are unchanged
+        int tail = keep;
+        while (tail < count && starts[tail] <= offset + removedLength) tail++; // started after a removed newline
+
+        int added = 0;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') added++;
+        }
+        int delta = inserted.length() - removedLength;
+        int[] next = new int[keep + added + (count - tail)];
+        System.arraycopy(starts, 0, next, 0, keep);
+        int j = keep;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') next[j++] = offset + i + 1;
+        }
+        for (int i = tail; i < count; i++) {
+            next[j++] = starts[i] + delta;
+        }
+        return new LineIndex(next, next.length);
+    }
+}
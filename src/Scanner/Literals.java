@@ -0,0 +1,136 @@
+package Scanner;
+
+// Values of literal lexemes, decoded straight from source chars. ManualScanner computes INTEGER and FLOAT
+// values while it scans the digits (setDecodeLiterals); these are the fallbacks for tokens scanned without
+// that, for literals the digit loop cannot evaluate exactly, and for strings/chars, which are only unescaped
+// when asked for.
+final class Literals {
+
+    private Literals() {}
+
+    // integers of at most this many chars (sign included) are accumulated in a long without overflow
+    static final int MAX_FAST_INTEGER_LENGTH = 18;
+
+    // exact powers of ten as doubles (10^22 is the largest one)
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // bits of a FLOAT value the digit loop could not compute exactly (a literal is never NaN)
+    static final long NO_FLOAT = Double.doubleToRawLongBits(Double.NaN);
+
+    static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+    }
+
+    // mantissa * 10^exponent when both are exact as doubles, so one multiply/divide rounds correctly
+    // (Clinger's fast path); NO_FLOAT otherwise
+    static long fastFloat(long mantissa, int digits, int exponent, boolean negative) {
+        if (digits > MAX_FAST_INTEGER_LENGTH || mantissa >= 1L << 53 || exponent < -22 || exponent > 22) {
+            return NO_FLOAT;
+        }
+        double value = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+        return Double.doubleToRawLongBits(negative ? -value : value);
+    }
+
+    static long integer(char[] s, int start, int length) {
+        if (length > MAX_FAST_INTEGER_LENGTH) {
+            return Long.parseLong(new String(s, start, length)); // NumberFormatException when out of range
+        }
+        int i = start;
+        int end = start + length;
+        boolean negative = s[i] == '-';
+        if (negative || s[i] == '+') i++;
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + digit(s[i]);
+        }
+        return negative ? -value : value;
+    }
+
+    static double floating(char[] s, int start, int length) {
+        int i = start;
+        int end = start + length;
+        boolean negative = s[i] == '-';
+        if (negative || s[i] == '+') i++;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = 0;
+        boolean inFraction = false;
+        int exponent = 0;
+        for (; i < end; i++) {
+            char c = s[i];
+            if (c == '.') {
+                inFraction = true;
+            } else if (c == 'e' || c == 'E') {
+                i++;
+                boolean negativeExponent = s[i] == '-';
+                if (negativeExponent || s[i] == '+') i++;
+                for (; i < end; i++) {
+                    if (exponent < 100_000) exponent = exponent * 10 + digit(s[i]);
+                }
+                if (negativeExponent) exponent = -exponent;
+            } else {
+                if (digits < MAX_FAST_INTEGER_LENGTH) mantissa = mantissa * 10 + digit(c);
+                digits++;
+                if (inFraction) fraction++;
+            }
+        }
+        long bits = fastFloat(mantissa, digits, exponent - fraction, negative);
+        if (bits != NO_FLOAT) return Double.longBitsToDouble(bits);
+        return Double.parseDouble(ascii(s, start, length));
+    }
+
+    // contents of a "..." or """...""" lexeme with escapes resolved; a slice of the source if it has none
+    static String string(char[] s, int start, int length) {
+        int quotes = length >= 6 && s[start + 1] == '"' && s[start + 2] == '"' ? 3 : 1;
+        int from = start + quotes;
+        int to = start + length - quotes;
+        int backslash = SkipKernels.indexOf(s, from, to, '\\');
+        if (backslash == to) return new String(s, from, to - from);
+
+        StringBuilder out = new StringBuilder(to - from);
+        out.append(s, from, backslash - from);
+        for (int i = backslash; i < to; i++) {
+            char c = s[i];
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char e = s[++i];
+            if (e == 'u') {
+                out.append((char) Integer.parseInt(new String(s, i + 1, 4), 16));
+                i += 4;
+            } else {
+                out.append(unescape(e));
+            }
+        }
+        return out.toString();
+    }
+
+    // the char of a '.' or '\.' lexeme
+    static char character(char[] s, int start, int length) {
+        char c = s[start + 1];
+        return c == '\\' ? unescape(s[start + 2]) : c;
+    }
+
+    private static char unescape(char e) {
+        switch (e) {
+            case 'n': return '\n';
+            case 't': return '\t';
+            case 'r': return '\r';
+            default: return e; // \\ \" \'
+        }
+    }
+
+    // Double.parseDouble only takes ASCII digits; the scanner also accepts other Unicode decimal digits
+    private static String ascii(char[] s, int start, int length) {
+        char[] out = new char[length];
+        for (int i = 0; i < length; i++) {
+            char c = s[start + i];
+            out[i] = Character.isDigit(c) ? (char) ('0' + digit(c)) : c;
+        }
+        return new String(out);
+    }
+}
@@ -1,32 +1,154 @@
 package Scanner;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 
 public class Main {
+
+    // diagnostics (see DiagnosticSink): format, cap and sampling
+    private static DiagnosticSink.Format diagnosticFormat = DiagnosticSink.Format.TEXT;
+    private static int maxErrors = -1;
+    private static int sampleErrors = 1;
+    private static Path diagnosticsOut; // --diagnostics-out=FILE, null: stdout (text) or stderr (json)
+    private static PrintStream diagnostics; // the sink's own stream when it is not stdout
+    private static int exitStatus; // 2: manual-flex found mismatches
+
     public static void main(String[] args) {
+        // tokens and text diagnostics share one buffered stdout (same encoding as System.out), flushed on exit
+        PrintStream stdout = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, System.out.charset());
+        System.setOut(stdout);
+        try {
+            run(args);
+        } finally {
+            ErrorHandler.getSink().finish();
+            stdout.flush();
+            if (diagnostics != null && diagnosticsOut != null) diagnostics.close();
+        }
+        if (exitStatus != 0) System.exit(exitStatus);
+    }
+
+    private static void run(String[] args) {
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
 
         if (args.length < 2) {
-            System.err.println("Usage: java Main <source.bili> <manual|flex|manual-flex>");
+            System.err.println("Usage: java Main <source.bili> <manual|flex|manual-flex|generated> [--spec=<file.flex>] [--mismatches=N] [--stream] [--mmap] [--single-pass] [--engine=branching|table] [--parallel[=N]] [--stats-out=<file.json|file.csv>] [--format=text|binary] [--out=<file.bilt>] [diagnostics]");
+            System.err.println("       java Main --batch <file|dir|glob>... [--dump] [--threads=N] [--engine=branching|table] [--stats-out=<file.json|file.csv>] [--sketch[=KB]] [--top=K] [diagnostics]");
+            System.err.println("diagnostics: [--diagnostics=text|json] [--diagnostics-out=<file>] [--max-errors=N] [--sample-errors=N]");
             System.exit(1);
         }
 
         String filePath = args[0];
         String mode = args[1].toLowerCase();
-        boolean runManual = mode.equals("manual") || mode.equals("manual-flex");
-        boolean runFlex = mode.equals("flex") || mode.equals("manual-flex");
+        boolean streaming = false;
+        boolean mapped = false;
+        boolean singlePass = false;
+        int threads = 0; // 0: sequential
+        ManualScanner.Engine engine = ManualScanner.Engine.BRANCHING;
+        Path statsOut = null;
+        boolean binary = false;
+        Path tokensOut = null;
+        Path spec = Paths.get("src", "Scanner", "Scanner.flex");
+        int maxMismatches = 10;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--stream")) {
+                streaming = true;
+            } else if (args[i].equals("--mmap")) {
+                streaming = true;
+                mapped = true;
+            } else if (args[i].equals("--single-pass")) {
+                singlePass = true;
+            } else if (args[i].equals("--parallel")) {
+                threads = Runtime.getRuntime().availableProcessors();
+            } else if (args[i].startsWith("--parallel=")) {
+                try {
+                    threads = Integer.parseInt(args[i].substring("--parallel=".length()));
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.err.println("Error: --parallel needs a positive thread count");
+                    System.exit(1);
+                }
+            } else if (args[i].equals("--engine=branching")) {
+                engine = ManualScanner.Engine.BRANCHING;
+            } else if (args[i].equals("--engine=table")) {
+                engine = ManualScanner.Engine.TABLE;
+            } else if (args[i].startsWith("--stats-out=")) {
+                statsOut = statsPath(args[i]);
+            } else if (args[i].equals("--format=text")) {
+                binary = false;
+            } else if (args[i].equals("--format=binary")) {
+                binary = true;
+            } else if (args[i].startsWith("--out=")) {
+                tokensOut = Paths.get(args[i].substring("--out=".length()));
+            } else if (args[i].startsWith("--mismatches=")) {
+                maxMismatches = count(args[i], "--mismatches=", 0);
+            } else if (args[i].startsWith("--spec=")) {
+                spec = Paths.get(args[i].substring("--spec=".length()));
+            } else if (diagnosticOption(args[i])) {
+                // handled
+            } else {
+                System.err.println("Error: Unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+        boolean differential = mode.equals("manual-flex");
+        boolean runManual = mode.equals("manual");
+        boolean runFlex = mode.equals("flex");
+        boolean runGenerated = mode.equals("generated");
 
         if (!filePath.endsWith(".bili")) {
             System.err.println("Error: Source file must have .bili extension.");
             System.exit(1);
         }
-        if (!runManual && !runFlex) {
-            System.err.println("Error: Mode must be one of: manual, flex, manual-flex");
+        if (!runManual && !runFlex && !runGenerated && !differential) {
+            System.err.println("Error: Mode must be one of: manual, flex, manual-flex, generated");
+            System.exit(1);
+        }
+        if (binary && !runManual) {
+            System.err.println("Error: --format=binary is only supported by the manual scanner");
             System.exit(1);
         }
+        if (tokensOut != null && !binary) {
+            System.err.println("Error: --out needs --format=binary");
+            System.exit(1);
+        }
+        if (binary && tokensOut == null) {
+            // x.bili -> x.bilt next to the source
+            tokensOut = Paths.get(filePath.substring(0, filePath.length() - ".bili".length()) + ".bilt");
+        }
+
+        installDiagnostics();
+
+        if (differential) {
+            System.out.println("\n--- Comparing Manual Scanner and JFlex Lexer ---");
+            long mismatches = DifferentialScanner.RunDifferential(filePath, engine, maxMismatches);
+            exitStatus = mismatches == 0 ? 0 : mismatches < 0 ? 1 : 2;
+            return;
+        }
 
         if (runManual) {
             System.out.println("\n--- Running Manual Scanner ---");
-            ManualScanner.RunManualScanner(filePath);
+            TokenStatistics statistics;
+            if (streaming) {
+                statistics = ManualScanner.RunStreamingScanner(filePath, engine, mapped, tokensOut);
+            } else if (threads > 0) {
+                statistics = ManualScanner.RunParallelScanner(filePath, engine, threads, tokensOut);
+            } else {
+                statistics = ManualScanner.RunManualScanner(filePath, singlePass, engine, tokensOut);
+            }
+            if (statsOut != null && statistics != null) {
+                ManualScanner.writeStatistics(statsOut, List.of(filePath), List.of(statistics));
+            }
         }
 
         if (runFlex) {
@@ -42,8 +164,134 @@ public class Main {
                     }
                 }
             } catch (Exception e) {
+                System.out.flush();
                 e.printStackTrace();
             }
         }
+
+        if (runGenerated) {
+            System.out.println("\n--- Running Generated Lexer ---");
+            TableLexer.RunTableLexer(filePath, spec);
+        }
+    }
+
+    // many files in one JVM, manual scanner only; one merged report (per-file token dumps with --dump)
+    private static void runBatch(String[] args) {
+        List<String> patterns = new ArrayList<>();
+        boolean dump = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ManualScanner.Engine engine = ManualScanner.Engine.BRANCHING;
+        Path statsOut = null;
+        int sketchKB = 0; // 0: exact symbol table
+        int topK = 50;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--dump")) {
+                dump = true;
+            } else if (args[i].equals("--sketch")) {
+                sketchKB = 1024;
+            } else if (args[i].startsWith("--sketch=")) {
+                sketchKB = count(args[i], "--sketch=", 1);
+            } else if (args[i].startsWith("--top=")) {
+                topK = count(args[i], "--top=", 1);
+            } else if (args[i].startsWith("--threads=")) {
+                try {
+                    threads = Integer.parseInt(args[i].substring("--threads=".length()));
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.err.println("Error: --threads needs a positive thread count");
+                    System.exit(1);
+                }
+            } else if (args[i].equals("--engine=branching")) {
+                engine = ManualScanner.Engine.BRANCHING;
+            } else if (args[i].equals("--engine=table")) {
+                engine = ManualScanner.Engine.TABLE;
+            } else if (args[i].startsWith("--stats-out=")) {
+                statsOut = statsPath(args[i]);
+            } else if (diagnosticOption(args[i])) {
+                // handled
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Error: Unknown option " + args[i]);
+                System.exit(1);
+            } else {
+                patterns.add(args[i]);
+            }
+        }
+        if (patterns.isEmpty()) {
+            System.err.println("Error: --batch needs at least one file, directory or glob");
+            System.exit(1);
+        }
+        if (sketchKB > 0 && sketchKB * 1024L < IdentifierSketch.minimumBytes(topK)) {
+            long minimumKB = (IdentifierSketch.minimumBytes(topK) + 1023) / 1024;
+            System.err.println("Error: --sketch=" + sketchKB + " is too small for --top=" + topK + " (needs at least " + minimumKB + " KB)");
+            System.exit(1);
+        }
+
+        installDiagnostics();
+        System.out.println("\n--- Running Manual Scanner (batch) ---");
+        BatchScanner.RunBatchScanner(patterns, threads, engine, dump, statsOut, (int) Math.min(Integer.MAX_VALUE, sketchKB * 1024L), topK);
+    }
+
+    // --diagnostics=text|json, --diagnostics-out=FILE, --max-errors=N, --sample-errors=N; false if arg is none of these
+    private static boolean diagnosticOption(String arg) {
+        if (arg.equals("--diagnostics=text")) {
+            diagnosticFormat = DiagnosticSink.Format.TEXT;
+        } else if (arg.equals("--diagnostics=json")) {
+            diagnosticFormat = DiagnosticSink.Format.JSON;
+        } else if (arg.startsWith("--diagnostics-out=")) {
+            diagnosticsOut = Paths.get(arg.substring("--diagnostics-out=".length()));
+        } else if (arg.startsWith("--max-errors=")) {
+            maxErrors = count(arg, "--max-errors=", 0);
+        } else if (arg.startsWith("--sample-errors=")) {
+            sampleErrors = count(arg, "--sample-errors=", 1);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static int count(String arg, String prefix, int min) {
+        int n;
+        try {
+            n = Integer.parseInt(arg.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            n = min - 1;
+        }
+        if (n < min) {
+            System.err.println("Error: " + prefix.substring(0, prefix.length() - 1) + " needs a number >= " + min);
+            System.exit(1);
+        }
+        return n;
+    }
+
+    // text goes with the tokens to stdout; JSON lines never share a stream with the token dump, so they go
+    // to stderr (buffered like stdout) unless --diagnostics-out names a file (either format, no color)
+    private static void installDiagnostics() {
+        if (diagnosticsOut != null) {
+            try {
+                diagnostics = new PrintStream(new BufferedOutputStream(Files.newOutputStream(diagnosticsOut), 1 << 16),
+                        false, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Error: Cannot write diagnostics to " + diagnosticsOut + ": " + e.getMessage());
+                System.exit(1);
+            }
+        } else if (diagnosticFormat == DiagnosticSink.Format.JSON) {
+            diagnostics = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), 1 << 16),
+                    false, System.err.charset());
+        }
+        PrintStream out = diagnostics != null ? diagnostics : System.out;
+        boolean color = diagnostics == null && DiagnosticSink.isTerminal();
+        ErrorHandler.setSink(new DiagnosticSink(out, diagnosticFormat, color, maxErrors, sampleErrors));
+    }
+
+    // --stats-out=<file>: the format follows the extension
+    private static Path statsPath(String arg) {
+        String file = arg.substring("--stats-out=".length());
+        if (!file.endsWith(".json") && !file.endsWith(".csv")) {
+            System.err.println("Error: --stats-out needs a .json or .csv file");
+            System.exit(1);
+        }
+        return Paths.get(file);
     }
-}
\ No newline at end of file
+}
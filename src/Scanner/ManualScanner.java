@@ -1,34 +1,177 @@
 package Scanner;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
-public class ManualScanner {
+public class ManualScanner implements Iterable<Token> {
 
-    private String input; // source code to parse
-    private int position; // curr char pos in input
-    private int line; // curr line
-    private int column; // curr col in line
+    // how scanToken() picks the DFA for the next token
+    public enum Engine {
+        BRANCHING, // if-chain in order of precedence
+        TABLE      // ASCII class table + operator transition table, Unicode path for non-ASCII only
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private Engine engine = Engine.BRANCHING;
+
+    private char[] buffer; // source chars: whole input, or a sliding window when streaming
+    private int limit; // number of valid chars in buffer
+    private Reader reader; // refill source when streaming, null once exhausted or for in-memory input
+    private int tokenStart; // buffer index where the current token began (kept across refills)
+    private String tokenText; // shared lexeme of the current token (keyword/identifier), null to slice the buffer
+    private String tokenReason; // why the current token is an ERROR, if known
+    private int position; // curr char pos in buffer
+    // line/col are not tracked per char: in-memory input is looked up in a line-start index (built on first
+    // use); streaming input, whose chars leave the buffer, is counted by a cursor synced up to each token
+    private boolean streaming;
+    private LineIndex lineIndex;
+    private LineIndex.Builder lineStarts; // backs lineIndex; its array is reused by the next input
+    private int cursor; // buffer index that cursorLine/cursorColumn refer to (streaming)
+    private int cursorLine = 1;
+    private int cursorColumn = 1;
+    private boolean lineHasContent; // curr line has a token on it (blank lines are dropped from the count)
+    private int blankLines; // blank lines skipped by skipWhitespace()
+    private boolean preprocessed; // input was rewritten by preprocess()
+    private boolean recordSymbols = true; // off for speculative chunk scans (ParallelScanner)
+    private boolean decodeLiterals; // compute INTEGER/FLOAT values while scanning their digits
+    private long tokenValue; // value of the current INTEGER, bits of the current FLOAT (decodeLiterals)
 
     private List<Token> tokens; // list of generated tokens
-    private Map<TokenType, Integer> tokenCounts; //counts per token type
-    private SymbolTable symbolTable; //to store symbol table
+    private final TokenStatistics statistics = new TokenStatistics(); // counts per token kind, size, time
+    private long scanStart; // nanoTime of the first scan call, 0 before
+    private boolean finished; // statistics completed at end of input
+    private long dropped; // chars compacted out of the buffer (streaming)
+    private final SymbolTable symbolTable; //to store symbol table
+    private ScanResult result; // reused by scan()
 
-    // handle errors by calling error handler
-    private Token errorToken(String lexeme, int line, int col, String reason) {
-        Token t = new Token(TokenType.ERROR, lexeme, line, col, reason);
-        return t;
+    public ManualScanner(String input) {
+        this(input.toCharArray(), input.length(), null);
     }
 
-    public ManualScanner(String input) {
-        this.input = input;
+    // reusable scanner without input: see scan() and reset()
+    public ManualScanner() {
+        this(new char[DEFAULT_BUFFER_SIZE], 0, null);
+    }
+
+    // streaming: pull chars from reader through a fixed-size refillable buffer
+    public ManualScanner(Reader reader) {
+        this(new char[DEFAULT_BUFFER_SIZE], 0, reader);
+    }
+
+    public ManualScanner(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    private ManualScanner(char[] buffer, int limit, Reader reader) {
+        this.buffer = buffer;
+        this.limit = limit;
+        this.reader = reader;
+        this.streaming = reader != null;
         this.position = 0;
-        this.line = 1;
-        this.column = 1;
         this.tokens = new ArrayList<>();
-        this.tokenCounts = new HashMap<>();
         this.symbolTable = new SymbolTable();
     }
 
+    // chunk scanner for ParallelScanner/IncrementalLexer: starts at `from` of a shared source,
+    // keeps no symbol table (its tokens may turn out to be speculative)
+    static ManualScanner forChunk(char[] source, int from, Engine engine) {
+        ManualScanner scanner = new ManualScanner(source, source.length, null);
+        scanner.position = from;
+        scanner.engine = engine;
+        scanner.recordSymbols = false;
+        return scanner;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    // INTEGER/FLOAT tokens (and token streams) carry their value, computed in the digit loop
+    // instead of being re-parsed from the lexeme later
+    public void setDecodeLiterals(boolean decodeLiterals) {
+        this.decodeLiterals = decodeLiterals;
+    }
+
+    // ---- reuse: one scanner per thread scans any number of inputs, keeping its buffers ----
+
+    // scan input and return the result without printing anything. The result and its stream, symbol
+    // table and statistics belong to this scanner: they are the same objects on every call and are
+    // only valid until the next scan() or reset(). In steady state (inputs no bigger than earlier ones)
+    // a scan allocates only the names of new identifiers and a small line index.
+    public ScanResult scan(CharSequence input) {
+        reset(input);
+        if (result == null) {
+            result = new ScanResult(new TokenStream(buffer, TokenStream.INITIAL_CAPACITY, decodeLiterals),
+                    symbolTable, statistics);
+        } else {
+            result.getTokens().reset(buffer, decodeLiterals);
+        }
+        lexAll(result.getTokens());
+        return result;
+    }
+
+    // start over on new in-memory input: the buffer is kept (grown if needed), counters, symbol table
+    // and statistics are cleared; engine and setDecodeLiterals settings are kept
+    public void reset(CharSequence input) {
+        int n = input.length();
+        if (buffer.length < n) buffer = new char[Math.max(n, buffer.length + (buffer.length >> 1))];
+        if (input instanceof String) {
+            ((String) input).getChars(0, n, buffer, 0);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(0, n, buffer, 0);
+        } else {
+            for (int i = 0; i < n; i++) buffer[i] = input.charAt(i);
+        }
+        this.reader = null;
+        this.streaming = false;
+        this.limit = n;
+        clearState();
+    }
+
+    // start over on a new streaming source (the previous reader is not closed)
+    public void reset(Reader reader) {
+        if (buffer.length < DEFAULT_BUFFER_SIZE) buffer = new char[DEFAULT_BUFFER_SIZE];
+        this.reader = reader;
+        this.streaming = true;
+        this.limit = 0;
+        clearState();
+    }
+
+    private void clearState() {
+        position = 0;
+        tokenStart = 0;
+        tokenText = null;
+        tokenReason = null;
+        lineIndex = null;
+        cursor = 0;
+        cursorLine = 1;
+        cursorColumn = 1;
+        lineHasContent = false;
+        blankLines = 0;
+        preprocessed = false;
+        if (!tokens.isEmpty()) tokens = new ArrayList<>(); // the old list was handed out by scanTokens()
+        statistics.clear();
+        scanStart = 0;
+        finished = false;
+        dropped = 0;
+        symbolTable.clear();
+    }
+
+    // replace in-memory input (e.g. with its preprocessed version)
+    private void setInput(String input, boolean preprocessed) {
+        this.buffer = input.toCharArray();
+        this.limit = input.length();
+        this.position = 0;
+        this.lineIndex = null;
+        this.preprocessed = preprocessed;
+    }
+
     private String preprocess(String input) {
         StringBuilder out = new StringBuilder();
 
@@ -198,154 +341,330 @@ public class ManualScanner {
 
     // scan the input char by char
     public List<Token> scanTokens() {
+        Token token;
+        while ((token = nextToken()).getType() != TokenType.EOF) {
+            tokens.add(token);
+        }
+
+        // append EOF token at end of file
+        //tokens.add(new Token(TokenType.EOF, "", line, column));
+        return tokens;
+    }
 
-        while (!endOfSource()) {
-            int prevPosition = position; // guard against no-progress iterations
+    // pull the next significant token (whitespace & comments skipped), EOF token at end of input
+    public Token nextToken() {
+        if (scanStart == 0) scanStart = System.nanoTime();
+        while (true) {
+            skipWhitespace();
+            if (endOfSource()) break;
+            lineHasContent = true;
 
             Token token = scanToken();
-            if (token != null && !(token.getType()==TokenType.WHITESPACE||token.getType() == TokenType.COMMENT||token.getType() == TokenType.EOF)) {
-                tokens.add(token);
-                updateTokenCount(token.getType());
-                if (token.getType() == TokenType.IDENTIFIER) {
-                    symbolTable.add(token.getLexeme(), token.getLine(), token.getColumn());
-                }
+            statistics.count(token.getType());
+
+            if (token.getType() != TokenType.COMMENT) {
+                // identifiers were already recorded in the symbol table by scanWordOrIdentifier()
+                return token;
             }
+        }
+        finishStatistics();
+        return token(TokenType.EOF, "", position, null);
+    }
 
-            // if scanToken didn't consume anything, force advance to avoid infinite loop
-            if (position == prevPosition) {
-                advance();
+    // scan the whole (in-memory) input into a compact struct-of-arrays stream; no Token objects are
+    // created, lexemes are sliced from the source only when asked for
+    public TokenStream scanTokenStream() {
+        if (reader != null) {
+            throw new IllegalStateException("Token streams need in-memory input, use nextToken() when streaming");
+        }
+        return lexAll(new TokenStream(buffer, TokenStream.INITIAL_CAPACITY, decodeLiterals));
+    }
+
+    private TokenStream lexAll(TokenStream stream) {
+        if (scanStart == 0) scanStart = System.nanoTime();
+        stream.setLineIndex(lineIndex());
+        while (true) {
+            skipWhitespace();
+            if (endOfSource()) break;
+            lineHasContent = true;
+
+            TokenType type = lexToken();
+            statistics.count(type);
+            if (type != TokenType.COMMENT) {
+                stream.add(type, tokenStart, position - tokenStart, tokenReason, tokenValue);
             }
         }
+        finishStatistics();
+        return stream;
+    }
 
-        // append EOF token at end of file
-        //tokens.add(new Token(TokenType.EOF, "", line, column));
-        return tokens;
+    // scan the remaining input straight into a binary token file (in-memory or streaming): lexemes go from
+    // the buffer to the writer's pool, no Token objects except for ERROR tokens, which are also reported
+    // to ErrorHandler as in the text output
+    public void scanInto(TokenFile.Writer out) throws IOException {
+        if (scanStart == 0) scanStart = System.nanoTime();
+        while (true) {
+            skipWhitespace();
+            if (endOfSource()) break;
+            lineHasContent = true;
+
+            TokenType type = lexToken();
+            statistics.count(type);
+            if (type == TokenType.COMMENT) continue;
+            int length = position - tokenStart;
+            int line = lineAt(tokenStart);
+            int column = columnAt(tokenStart);
+            if (type == TokenType.ERROR) {
+                ErrorHandler.handleError(new Token(type, lexeme(type), line, column, tokenReason));
+            }
+            out.add(type, dropped + tokenStart, line, column, buffer, tokenStart, length, tokenReason);
+        }
+        finishStatistics();
+    }
+
+    // ---- stepping used by ParallelScanner: comments are kept so chunk streams can be resynchronised ----
+
+    // skip whitespace; returns the start of the next token, or the input length at end of input
+    int skipToNextToken() {
+        skipWhitespace();
+        return endOfSource() ? limit : position;
+    }
+
+    // scan the token at position (after skipToNextToken) into out
+    void lexInto(TokenStream out) {
+        TokenType type = lexToken();
+        out.add(type, tokenStart, position - tokenStart, tokenReason, tokenValue);
+    }
+
+    // single-use iterator over the remaining tokens, pulling them lazily via nextToken()
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<Token>() {
+            private Token next = nextToken();
+
+            @Override
+            public boolean hasNext() {
+                return next.getType() != TokenType.EOF;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Token current = next;
+                next = nextToken();
+                return current;
+            }
+        };
     }
 
+    // scan one token into a Token object (lexeme shared where possible, else sliced from the buffer)
     private Token scanToken() {
+        TokenType type = lexToken();
+        Token token = token(type, lexeme(type), tokenStart, tokenReason);
+        if (decodeLiterals && hasValue(type)) token.setValue(tokenValue);
+        return token;
+    }
+
+    // tokenValue holds an exact value for the token just scanned
+    private boolean hasValue(TokenType type) {
+        return (type == TokenType.INTEGER && position - tokenStart <= Literals.MAX_FAST_INTEGER_LENGTH)
+                || (type == TokenType.FLOAT && tokenValue != Literals.NO_FLOAT);
+    }
 
-        int startLine = line;
-        int startCol = column;
+    // Token at buffer index offset: in-memory tokens look up line/col only when asked,
+    // streaming tokens are resolved now (the chars are about to leave the buffer)
+    private Token token(TokenType type, String lexeme, int offset, String reason) {
+        if (!streaming) return new Token(type, lexeme, offset, lineIndex(), reason);
+        syncCursor(offset);
+        return new Token(type, lexeme, cursorLine, cursorColumn, reason);
+    }
+
+    // scan one token: leaves its span in [tokenStart, position) and the error reason (if any)
+    // in tokenReason; every lexeme is exactly that span of the buffer
+    private TokenType lexToken() {
+
+        tokenStart = position;
+        tokenText = null;
+        tokenReason = null;
         char c = advance();
 
+        TokenType type = (engine == Engine.TABLE && c < 128) ? dispatchTable(c) : dispatchBranching(c);
+
+        // if the DFA backtracked to where it started (signed-number check), consume the char to make progress
+        if (position == tokenStart) {
+            advance();
+        }
+        return type;
+    }
+
+    // lexeme of the token just scanned: shared text for keywords, identifiers and fixed operators
+    private String lexeme(TokenType type) {
+        if (tokenText != null) return tokenText;
+        String fixed = ScannerTables.LEXEME[type.ordinal()];
+        if (fixed != null) return fixed;
+        return new String(buffer, tokenStart, position - tokenStart);
+    }
+
+    // record why the token just scanned is invalid
+    private TokenType error(String reason) {
+        tokenReason = reason;
+        return TokenType.ERROR;
+    }
+
+    // constant-cost dispatch on the ASCII class of c; operators run the two-char transition table
+    private TokenType dispatchTable(char c) {
+        switch (ScannerTables.CLASS[c]) {
+            case ScannerTables.UPPER:
+            case ScannerTables.LOWER:
+                return scanWordOrIdentifier(c);
+            case ScannerTables.DIGIT:
+                return scanNumber(c);
+            case ScannerTables.QUOTE:
+                return scanString();
+            case ScannerTables.APOSTROPHE:
+                return scanCharacter();
+            case ScannerTables.HASH:
+                if (peek() == '*') return scanMultiLineComment();
+                if (peek() == '#') return scanSingleLineComment();
+                break;
+            case ScannerTables.OPERATOR: {
+                int state = ScannerTables.OP_STATE[c];
+                TokenType type = ScannerTables.pair(state, peek());
+                if (type != null) {
+                    advance();
+                    return type;
+                }
+                // signed number, after the two-char operators like the branching order
+                if ((c == '+' || c == '-') && isDigit(peek())) {
+                    return scanNumber(c);
+                }
+                type = ScannerTables.ACCEPT[state];
+                if (type != null) {
+                    return type;
+                }
+                break;
+            }
+        }
+        return error("Invalid character: '" + c + "'");
+    }
+
+    private TokenType dispatchBranching(char c) {
+
         // check in order of precedence:
         // 1. multi-line comments
         if (c == '#' && peek() == '*') {
-            return scanMultiLineComment(startLine, startCol);
+            return scanMultiLineComment();
         }
 
         // 2. single-line comments
         if (c == '#' && peek() == '#') {
-            return scanSingleLineComment(startLine, startCol);
+            return scanSingleLineComment();
         }
 
         // 3. multi-character operators
         // just peek ahead to confirm classification as multichar
         if (c == '*' && peek() == '*') {
             advance();
-            return new Token(TokenType.EXP, "**", startLine, startCol);
+            return TokenType.EXP;
         }
         if (c == '=' && peek() == '=') {
             advance();
-            return new Token(TokenType.EQUAL, "==", startLine, startCol);
+            return TokenType.EQUAL;
         }
         if (c == '!' && peek() == '=') {
             advance();
-            return new Token(TokenType.NOT_EQUAL, "!=", startLine, startCol);
+            return TokenType.NOT_EQUAL;
         }
         if (c == '<' && peek() == '=') {
             advance();
-            return new Token(TokenType.LESS_EQUAL, "<=", startLine, startCol);
+            return TokenType.LESS_EQUAL;
         }
         if (c == '>' && peek() == '=') {
             advance();
-            return new Token(TokenType.GREATER_EQUAL, ">=", startLine, startCol);
+            return TokenType.GREATER_EQUAL;
         }
         if (c == '&' && peek() == '&') {
             advance();
-            return new Token(TokenType.LOGICAL_AND, "&&", startLine, startCol);
+            return TokenType.LOGICAL_AND;
         }
         if (c == '|' && peek() == '|') {
             advance();
-            return new Token(TokenType.LOGICAL_OR, "||", startLine, startCol);
+            return TokenType.LOGICAL_OR;
         }
         if (c == '+' && peek() == '+') {
             advance();
-            return new Token(TokenType.INC, "++", startLine, startCol);
+            return TokenType.INC;
         }
         if (c == '-' && peek() == '-') {
             advance();
-            return new Token(TokenType.DEC, "--", startLine, startCol);
+            return TokenType.DEC;
         }
         if (c == '+' && peek() == '=') {
             advance();
-            return new Token(TokenType.ADD_ASSIGN, "+=", startLine, startCol);
+            return TokenType.ADD_ASSIGN;
         }
         if (c == '-' && peek() == '=') {
             advance();
-            return new Token(TokenType.SUB_ASSIGN, "-=", startLine, startCol);
+            return TokenType.SUB_ASSIGN;
         }
         if (c == '*' && peek() == '=') {
             advance();
-            return new Token(TokenType.MUL_ASSIGN, "*=", startLine, startCol);
+            return TokenType.MUL_ASSIGN;
         }
         if (c == '/' && peek() == '=') {
             advance();
-            return new Token(TokenType.DIV_ASSIGN, "/=", startLine, startCol);
+            return TokenType.DIV_ASSIGN;
         }
 
         // 4. keywords or identifiers (any alpha start)
         if (isAlpha(c)) {
-            return scanWordOrIdentifier(c, startLine, startCol);
+            return scanWordOrIdentifier(c);
         }
 
         // 7. floating-point literals 8. integer literals
         if (isDigit(c) || c == '+' || c == '-') {
-            return scanNumber(c, startLine, startCol);
+            return scanNumber(c);
         }
 
         // 9. string literals
         if (c == '"') {
-            return scanString(startLine, startCol);
+            return scanString();
         }
 
         // 10. character literals
         if (c == '\'' ) {
-            return scanCharacter(startLine, startCol);
+            return scanCharacter();
         }
 
         // 11. single-character operators
         switch (c) {
-            case '+': return new Token(TokenType.ADD, "+", startLine, startCol);
-            case '-': return new Token(TokenType.SUB, "-", startLine, startCol);
-            case '*': return new Token(TokenType.MUL, "*", startLine, startCol);
-            case '/': return new Token(TokenType.DIV, "/", startLine, startCol);
-            case '%': return new Token(TokenType.MOD, "%", startLine, startCol);
-            case '<': return new Token(TokenType.LESS_THAN, "<", startLine, startCol);
-            case '>': return new Token(TokenType.GREATER_THAN, ">", startLine, startCol);
-            case '!': return new Token(TokenType.LOGICAL_NOT, "!", startLine, startCol);
-            case '=': return new Token(TokenType.ASSIGN, "=", startLine, startCol);
+            case '+': return TokenType.ADD;
+            case '-': return TokenType.SUB;
+            case '*': return TokenType.MUL;
+            case '/': return TokenType.DIV;
+            case '%': return TokenType.MOD;
+            case '<': return TokenType.LESS_THAN;
+            case '>': return TokenType.GREATER_THAN;
+            case '!': return TokenType.LOGICAL_NOT;
+            case '=': return TokenType.ASSIGN;
         }
         // 12. punctuators
         switch (c) {
-            case '(': return new Token(TokenType.LEFT_PAREN, "(", startLine, startCol);
-            case ')': return new Token(TokenType.RIGHT_PAREN, ")", startLine, startCol);
-            case '{': return new Token(TokenType.LEFT_BRACE, "{", startLine, startCol);
-            case '}': return new Token(TokenType.RIGHT_BRACE, "}", startLine, startCol);
-            case '[': return new Token(TokenType.LEFT_BRACKET, "[", startLine, startCol);
-            case ']': return new Token(TokenType.RIGHT_BRACKET, "]", startLine, startCol);
-            case ',': return new Token(TokenType.COMMA, ",", startLine, startCol);
-            case ';': return new Token(TokenType.SEMICOLON, ";", startLine, startCol);
-            case ':': return new Token(TokenType.COLON, ":", startLine, startCol);
+            case '(': return TokenType.LEFT_PAREN;
+            case ')': return TokenType.RIGHT_PAREN;
+            case '{': return TokenType.LEFT_BRACE;
+            case '}': return TokenType.RIGHT_BRACE;
+            case '[': return TokenType.LEFT_BRACKET;
+            case ']': return TokenType.RIGHT_BRACKET;
+            case ',': return TokenType.COMMA;
+            case ';': return TokenType.SEMICOLON;
+            case ':': return TokenType.COLON;
         }
 
-        // 12. whitespace
-        if (Character.isWhitespace(c)) {
-            return scanWhitespace(c, startLine, startCol);
-        }
+        // 12. whitespace is consumed by skipWhitespace() before scanToken() is called
 
         // if none match it must be an invalid character
-        return errorToken(String.valueOf(c), startLine, startCol, "Invalid character: '" + c + "'");
+        return error("Invalid character: '" + c + "'");
     }
 
 
@@ -353,42 +672,135 @@ public class ManualScanner {
 
     // to check if end of input reached
     private boolean endOfSource() {
-        return position >= input.length();
+        return position >= limit && !fill(1);
+    }
+
+    // make at least `needed` chars available from position; only the current token is kept on refill
+    private boolean fill(int needed) {
+        if (reader == null) return false;
+        if (tokenStart > 0) {
+            syncCursor(tokenStart); // count the lines of what is dropped
+            cursor -= tokenStart;
+            dropped += tokenStart;
+            System.arraycopy(buffer, tokenStart, buffer, 0, limit - tokenStart);
+            limit -= tokenStart;
+            position -= tokenStart;
+            tokenStart = 0;
+        }
+        try {
+            while (limit - position < needed) {
+                // only grows when a single token outlives the window (e.g. a huge comment)
+                if (limit == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                int n = reader.read(buffer, limit, buffer.length - limit);
+                if (n < 0) {
+                    reader = null;
+                    return false;
+                }
+                limit += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read source", e);
+        }
+        return true;
     }
 
-    // to move to next char (update col and line) & return current char
+    // to move to next char & return current char (line/col are resolved from offsets when needed)
     private char advance() {
         if (endOfSource()) return '\0';
-        char c = input.charAt(position++);
-        // if its a newline reset column=1 & line++
-        if (c == '\n') {
-            line++;
-            column = 1;
-        } else {
-            column++;
+        return buffer[position++];
+    }
+
+    private LineIndex lineIndex() {
+        if (lineIndex == null) {
+            if (lineStarts == null) lineStarts = new LineIndex.Builder();
+            lineIndex = lineStarts.clear().add(buffer, 0, limit).build();
+        }
+        return lineIndex;
+    }
+
+    // streaming: move the line/col cursor forward to buffer index pos
+    private void syncCursor(int pos) {
+        int lastNewline = -1;
+        for (int i = cursor; i < pos; i++) {
+            if (buffer[i] == '\n') {
+                cursorLine++;
+                lastNewline = i;
+            }
+        }
+        cursorColumn = lastNewline < 0 ? cursorColumn + (pos - cursor) : pos - lastNewline;
+        cursor = pos;
+    }
+
+    // line of buffer index offset
+    private int lineAt(int offset) {
+        if (!streaming) return lineIndex().line(offset);
+        syncCursor(offset);
+        return cursorLine;
+    }
+
+    private int columnAt(int offset) {
+        if (!streaming) return lineIndex().column(offset);
+        syncCursor(offset);
+        return cursorColumn;
+    }
+
+    // move position to the next c (not consumed), refilling as needed; false (at end of input) if none
+    private boolean skipTo(char c) {
+        while (true) {
+            position = SkipKernels.indexOf(buffer, position, limit, c);
+            if (position < limit) return true;
+            if (!fill(1)) return false;
+        }
+    }
+
+    private boolean skipToAny(char a, char b) {
+        while (true) {
+            position = SkipKernels.indexOfAny(buffer, position, limit, a, b);
+            if (position < limit) return true;
+            if (!fill(1)) return false;
+        }
+    }
+
+    private boolean skipToAny(char a, char b, char c) {
+        while (true) {
+            position = SkipKernels.indexOfAny(buffer, position, limit, a, b, c);
+            if (position < limit) return true;
+            if (!fill(1)) return false;
         }
-        return c;
     }
 
     // current char without consuming it
     private char peek() {
         if (endOfSource()) return '\0';
-        return input.charAt(position);
+        return buffer[position];
     }
 
     // lookahead k=1 for peeking without consuming
     private char peekNext() {
-        if (position + 1 >= input.length()) return '\0';
-        return input.charAt(position + 1);
+        if (position + 1 >= limit && !fill(2)) return '\0';
+        return buffer[position + 1];
     }
 
-    // check alphanumeric etc
+    // check alphanumeric etc (class table for ASCII, Unicode classification otherwise)
     private boolean isAlpha(char c) {
+        if (c < 128) {
+            byte k = ScannerTables.CLASS[c];
+            return k == ScannerTables.UPPER || k == ScannerTables.LOWER;
+        }
         return Character.isLetter(c);
     }
     private boolean isDigit(char c) {
+        if (c < 128) return ScannerTables.CLASS[c] == ScannerTables.DIGIT;
         return Character.isDigit(c);
     }
+    private boolean isLowerAlpha(char c) {
+        if (c < 128) return ScannerTables.CLASS[c] == ScannerTables.LOWER;
+        return Character.isLetter(c) && Character.isLowerCase(c);
+    }
+    private boolean isWhitespace(char c) {
+        if (c < 128) return ScannerTables.CLASS[c] == ScannerTables.SPACE;
+        return Character.isWhitespace(c);
+    }
     private boolean isAlphaNumeric(char c) {
         return isAlpha(c) || isDigit(c);
     }
@@ -396,252 +808,271 @@ public class ManualScanner {
         return isAlphaNumeric(c) || c == '_' || c == ' ';
     }
 
-    // count
-    private void updateTokenCount(TokenType type) {
-        tokenCounts.put(type, tokenCounts.getOrDefault(type, 0) + 1);
+    // preprocess() already dropped blank lines from the text; otherwise they were skipped while scanning
+    int linesProcessed() {
+        int lines = lineAt(position);
+        return preprocessed ? lines : lines - blankLines;
+    }
+
+    SymbolTable symbolTable() { return symbolTable; }
+
+    // counts so far; size, lines and scan time are filled in at end of input
+    public TokenStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void finishStatistics() {
+        if (finished) return;
+        finished = true;
+        statistics.setChars(dropped + position);
+        statistics.setLinesProcessed(linesProcessed());
+        statistics.setNanos(System.nanoTime() - scanStart);
     }
 
     // ------------------------------------ DFAs ------------------------------------
+    // each DFA consumes its token from the buffer and returns the token type; the lexeme is the
+    // consumed span, so no DFA builds its text
 
-    private Token scanMultiLineComment(int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder("#*");
+    private TokenType scanMultiLineComment() {
         advance(); //consume full #*
 
-        while (!endOfSource()) {
-            char c = advance();
-            lexeme.append(c);
-
-            if (c == '*') {
-                // * loop
-                while (peek() == '*' && !endOfSource()) {
-                    c = advance();
-                    lexeme.append(c);
-                }
-                // if after *-># reach final state, return comment token
-                if (peek() == '#') {
-                    advance();
-                    lexeme.append('#');
-                    return new Token(TokenType.COMMENT, lexeme.toString(), startLine, startCol);
-                }
+        // jump from * to *: nothing else can end the comment
+        while (skipTo('*')) {
+            advance();
+            // * loop
+            while (peek() == '*' && !endOfSource()) {
+                advance();
+            }
+            // if after *-># reach final state, return comment token
+            if (peek() == '#') {
+                advance();
+                return TokenType.COMMENT;
             }
         }
         // unclosed multiline comment
-        return errorToken(lexeme.toString(), startLine, startCol, "Unclosed multi-line comment (missing *#)");
+        return error("Unclosed multi-line comment (missing *#)");
     }
 
-    private Token scanSingleLineComment(int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder("##");
+    private TokenType scanSingleLineComment() {
         advance(); // consume full ##
 
         // stay in comment dfa until \n reached
-        while (peek() != '\n' && !endOfSource()) {
-            lexeme.append(advance());
-        }
+        skipTo('\n');
 
-        return new Token(TokenType.COMMENT, lexeme.toString(), startLine, startCol);
+        return TokenType.COMMENT;
     }
 
     // KEYWORD or IDENTIFIER
-    private Token scanWordOrIdentifier(char firstChar, int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder();
-        lexeme.append(firstChar);
-
+    // recognised on the buffer range [tokenStart, position): keywords & booleans reuse a shared lexeme,
+    // only identifiers (interned through the symbol table) and errors create a String
+    private TokenType scanWordOrIdentifier(char firstChar) {
         // consume all valid identifier/keyword characters (letters, digits, underscores)
-        while (!endOfSource() && ((isAlpha(peek()) && Character.isLowerCase(peek())) || isDigit(peek()) || peek() == '_')) {
-            lexeme.append(advance());
+        while (!endOfSource() && (isLowerAlpha(peek()) || isDigit(peek()) || peek() == '_')) {
+            advance();
         }
-        String text = lexeme.toString();
+        int length = position - tokenStart;
 
         // check keywords first
-        switch (text) {
-            case "start": return new Token(TokenType.START, text, startLine, startCol);
-            case "finish": return new Token(TokenType.FINISH, text, startLine, startCol);
-            case "loop": return new Token(TokenType.LOOP, text, startLine, startCol);
-            case "condition": return new Token(TokenType.CONDITION, text, startLine, startCol);
-            case "declare": return new Token(TokenType.DECLARE, text, startLine, startCol);
-            case "output": return new Token(TokenType.OUTPUT, text, startLine, startCol);
-            case "input": return new Token(TokenType.INPUT, text, startLine, startCol);
-            case "function": return new Token(TokenType.FUNCTION, text, startLine, startCol);
-            case "return": return new Token(TokenType.RETURN, text, startLine, startCol);
-            case "break": return new Token(TokenType.BREAK, text, startLine, startCol);
-            case "continue": return new Token(TokenType.CONTINUE, text, startLine, startCol);
-            case "else": return new Token(TokenType.ELSE, text, startLine, startCol);
-            case "true": case "false": return new Token(TokenType.BOOLEAN, text, startLine, startCol);
+        int keyword = Keywords.find(buffer, tokenStart, length);
+        if (keyword >= 0) {
+            tokenText = Keywords.lexeme(keyword);
+            return Keywords.type(keyword);
         }
         // else check identifier
-        if (Character.isUpperCase(text.charAt(0))) {
-            if (text.length() > 31) {
-                return errorToken(text, startLine, startCol, "Identifier exceeds max length (31)");
+        if (Character.isUpperCase(firstChar)) {
+            if (length > 31) {
+                return error("Identifier exceeds max length (31)");
+            }
+            if (recordSymbols) {
+                // the position is only looked up for an identifier's first occurrence
+                int id = symbolTable.intern(buffer, tokenStart, length);
+                if (id < 0) {
+                    id = -(id + 1);
+                    symbolTable.setFirstOccurrence(id, lineAt(tokenStart), columnAt(tokenStart));
+                }
+                tokenText = symbolTable.name(id);
             }
-            return new Token(TokenType.IDENTIFIER, text, startLine, startCol);
+            return TokenType.IDENTIFIER;
         }
         // if not a keyword or valid identifier, it's an invalid identifier
-        return errorToken(text, startLine, startCol, "Invalid identifier (must start with Uppercase or be a keyword)");
+        return error("Invalid identifier (must start with Uppercase or be a keyword)");
     }
 
     //  INTEGER & FLOAT
-    private Token scanNumber(char firstChar, int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder();
-        lexeme.append(firstChar);
+    private TokenType scanNumber(char firstChar) {
 
         if (firstChar == '+' || firstChar == '-') {
             if (!isDigit(peek())) {
                 // not a signed number, maybe part of single char operator
                 // no need to check multichar operator here bc its alr checked higher precedence in scanToken()
                 position--; // backtrack
-                column--;
-                return scanSingleCharOperator(firstChar, startLine, startCol);
+                return scanSingleCharOperator(firstChar);
             }
         }
 
+        // mantissa digits are accumulated as they are consumed (decodeLiterals); an integer of at most
+        // MAX_FAST_INTEGER_LENGTH chars cannot overflow, longer ones are left to Literals
+        boolean decode = decodeLiterals;
+        boolean negative = firstChar == '-';
+        long mantissa = 0;
+        int digits = 0;
+        if (decode && firstChar != '+' && firstChar != '-') {
+            mantissa = Literals.digit(firstChar);
+            digits = 1;
+        }
         while (isDigit(peek())) {
-            lexeme.append(advance());
+            char d = advance();
+            if (decode && digits < Literals.MAX_FAST_INTEGER_LENGTH) mantissa = mantissa * 10 + Literals.digit(d);
+            digits++;
         }
 
         // check if float
         if (peek() == '.') {
-            lexeme.append(advance());
+            advance();
 
             // if another '.' immediately appears its malformed
             if (peek() == '.') {
-                lexeme.append(advance());
-                return errorToken(lexeme.toString(), startLine, startCol, "Malformed float: multiple decimal points");
+                advance();
+                return error("Malformed float: multiple decimal points");
             }
             if (!isDigit(peek())) {
                 // invalid float w no digits after .
-                return errorToken(lexeme.toString(), startLine, startCol, "Malformed float: missing digits after '.'");
+                return error("Malformed float: missing digits after '.'");
             }
 
             int decimalPlaces = 0;
             while (isDigit(peek()) && decimalPlaces < 6) {
-                lexeme.append(advance());
+                char d = advance();
+                if (decode && digits < Literals.MAX_FAST_INTEGER_LENGTH) mantissa = mantissa * 10 + Literals.digit(d);
+                digits++;
                 decimalPlaces++;
             }
 
             if (decimalPlaces > 6) {
-                return errorToken(lexeme.toString(), startLine, startCol, "Malformed float: more than 6 decimals");
+                return error("Malformed float: more than 6 decimals");
             }
 
             // if another '.' appears its malformed
             if (peek() == '.') {
                 // consume the rest of the digits
                 do {
-                    lexeme.append(advance());
+                    advance();
                 } while (isDigit(peek()) || peek() == '.');
-                return errorToken(lexeme.toString(), startLine, startCol, "Malformed float: multiple decimal points");
+                return error("Malformed float: multiple decimal points");
             }
 
             // check for exponent part
+            int exponent = 0;
             if (peek() == 'e' || peek() == 'E') {
-                lexeme.append(advance());
+                advance();
+                boolean negativeExponent = false;
                 if (peek() == '+' || peek() == '-') {
-                    lexeme.append(advance());
+                    negativeExponent = advance() == '-';
                 }
                 if (!isDigit(peek())) {
-                    return errorToken(lexeme.toString(), startLine, startCol, "Malformed float: invalid exponent");
+                    return error("Malformed float: invalid exponent");
                 }
                 while (isDigit(peek())) {
-                    lexeme.append(advance());
+                    char d = advance();
+                    if (exponent < 100_000) exponent = exponent * 10 + Literals.digit(d); // capped: out of fast range anyway
                 }
+                if (negativeExponent) exponent = -exponent;
             }
 
-            return new Token(TokenType.FLOAT, lexeme.toString(), startLine, startCol);
+            if (decode) tokenValue = Literals.fastFloat(mantissa, digits, exponent - decimalPlaces, negative);
+            return TokenType.FLOAT;
         }
 
-        return new Token(TokenType.INTEGER, lexeme.toString(), startLine, startCol);
+        if (decode) tokenValue = negative ? -mantissa : mantissa;
+        return TokenType.INTEGER;
     }
 
-    private Token scanString(int startLine, int startCol) {
+    private TokenType scanString() {
         // We have already consumed one '"' in scanToken
-        StringBuilder lexeme = new StringBuilder("\"");
 
         boolean isMultiLine = false;
         // Detect multiline start: next two are quotes
         if (peek() == '"' && peekNext() == '"') {
             // consume two quotes to complete opening """
-            lexeme.append(advance());
-            lexeme.append(advance());
+            advance();
+            advance();
             isMultiLine = true;
         }
 
         if (isMultiLine) {
-            while (!endOfSource()) {
+            // only a quote or a backslash can change state
+            while (skipToAny('"', '\\')) {
                 if (peek() == '"' && peekNext() == '"') {
                     // consume three quotes
-                    lexeme.append(advance());
-                    lexeme.append(advance());
+                    advance();
+                    advance();
                     if (peek() == '"') {
-                        lexeme.append(advance());
-                        return new Token(TokenType.STRING, lexeme.toString(), startLine, startCol);
+                        advance();
+                        return TokenType.STRING;
                     } else {
-                        return errorToken(lexeme.toString(), startLine, startCol, "Unterminated multiline string literal");
+                        return error("Unterminated multiline string literal");
                     }
                 }
                 char c = advance();
-                lexeme.append(c);
                 if (c == '\\') {
                     // escapes inside multline strings
                     if (endOfSource()) break;
                     char esc = peek();
                     if (esc == 'u') {
-                        lexeme.append(advance());
+                        advance();
                         // \\uXXXX (4 hex digits required)
                         for (int i = 0; i < 4; i++) {
                             if (endOfSource() || !isHexDigit(peek())) {
                                 // consume rest of multiline string until closing """ or EOF
-                                consumeRestOfString(true,lexeme);
-                                return errorToken(lexeme.toString(), startLine, startCol, "Invalid Unicode escape in string literal");
+                                consumeRestOfString(true);
+                                return error("Invalid Unicode escape in string literal");
                             }
-                            lexeme.append(advance());
+                            advance();
                         }
                     } else if (esc == 'n' || esc == 't' || esc == 'r' || esc == '\\' || esc == '"') {
-                        lexeme.append(advance());
+                        advance();
                     } else {
                         // consume rest of multiline string until closing """ or EOF
-                        consumeRestOfString(true,lexeme);
-                        return errorToken(lexeme.toString(), startLine, startCol, "Invalid escape sequence in string literal");
+                        consumeRestOfString(true);
+                        return error("Invalid escape sequence in string literal");
                     }
                 }
             }
             // EOF reached without closing
-            return errorToken(lexeme.toString(), startLine, startCol, "Unterminated multiline string literal");
+            return error("Unterminated multiline string literal");
         } else {
-            // Single-line string: stop at closing quote or newline/EOF
-            while (!endOfSource() && peek() != '"' && peek() != '\n') {
+            // Single-line string: stop at closing quote or newline/EOF; plain chars are skipped in bulk
+            while (skipToAny('"', '\n', '\\') && peek() == '\\') {
                 char c = advance();
                 if (c == '\\') {
                     // escape handling
                     char esc = peek();
                     if (esc == 'u') {
-                        lexeme.append('\\').append(advance());
+                        advance();
                         // \\uXXXX (4 hex digits required)
                         for (int i = 0; i < 4; i++) {
                             if (endOfSource() || !isHexDigit(peek())) {
-                                consumeRestOfString(false,lexeme);
-                                return errorToken(lexeme.toString(), startLine, startCol, "Unterminated string literal");
+                                consumeRestOfString(false);
+                                return error("Unterminated string literal");
                             }
-                            lexeme.append(advance());
+                            advance();
                         }
-                        continue;
                     } else if (esc == 'n' || esc == 't' || esc == 'r' || esc == '\\' || esc == '"') {
-                        lexeme.append('\\').append(advance());
-                        continue;
+                        advance();
                     } else {
                         // invalid escape
-                        lexeme.append(c); // '\\'
                         // consume rest of string until closing quote or newline
-                        consumeRestOfString(false,lexeme);
-                        return errorToken(lexeme.toString(), startLine, startCol, "Invalid escape sequence in string literal");
+                        consumeRestOfString(false);
+                        return error("Invalid escape sequence in string literal");
                     }
                 }
-                lexeme.append(c);
             }
             if (endOfSource() || peek() == '\n') {
-                return errorToken(lexeme.toString(), startLine, startCol, "Unterminated string literal");
+                return error("Unterminated string literal");
             }
             // consume closing '"'
-            lexeme.append(advance());
-            return new Token(TokenType.STRING, lexeme.toString(), startLine, startCol);
+            advance();
+            return TokenType.STRING;
         }
     }
 
@@ -650,154 +1081,312 @@ public class ManualScanner {
     }
 
     // helper to consume rest of string on string related error
-    private void consumeRestOfString(boolean isMultiLine, StringBuilder lexeme) {
+    private void consumeRestOfString(boolean isMultiLine) {
         if (isMultiLine) {
             // consume rest of multiline string until closing """ or EOF
-            while (!endOfSource()) {
+            while (skipTo('"')) {
                 if (peek() == '"' && peekNext() == '"') {
-                    lexeme.append(advance());
-                    lexeme.append(advance()); // consume first two quotes
+                    advance();
+                    advance(); // consume first two quotes
                     if (!endOfSource() && peek() == '"') {
-                        lexeme.append(advance()); // consume third quote
+                        advance(); // consume third quote
                         break;
                     }
                 } else {
-                    lexeme.append(advance());
+                    advance();
                 }
             }
         } else {
             // consume rest of string until closing quote or newline
-            while (!endOfSource() && peek() != '"' && peek() != '\n') {
-                lexeme.append(advance());
-            }
+            skipToAny('"', '\n');
             if (!endOfSource() && peek() == '"') {
-                lexeme.append(advance()); // consume closing quote
+                advance(); // consume closing quote
             }
         }
     }
 
-    private Token scanCharacter(int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder("'");
+    private TokenType scanCharacter() {
 
         // unclosed char literal
         if (endOfSource() || peek() == '\n') {
-            return errorToken(lexeme.toString(), startLine, startCol, "Unterminated character literal");
+            return error("Unterminated character literal");
         }
 
         char c = peek();
         // enter \ branch and check for valid escape sequence
         if (c == '\\') {
             advance();
-            lexeme.append('\\');
             char escaped = peek();
             if (escaped == '\'' || escaped == '\\' || escaped == 'n' ||
                 escaped == 't' || escaped == 'r') {
-                lexeme.append(advance());
+                advance();
             } else {
-                return errorToken(lexeme.toString(), startLine, startCol, "Invalid escape in character literal");
+                return error("Invalid escape in character literal");
             }
         } else if (c != '\'' ) {
-            lexeme.append(advance());
+            advance();
         } else {
             // empty char literal '' is invalid
-            return errorToken(lexeme.toString(), startLine, startCol, "Empty character literal");
+            return error("Empty character literal");
         }
         if (peek() != '\'' ) {
-            return errorToken(lexeme.toString(), startLine, startCol, "Unterminated character literal");
+            return error("Unterminated character literal");
         }
 
         advance();
-        lexeme.append('\'');
 
-        return new Token(TokenType.CHARACTER, lexeme.toString(), startLine, startCol);
+        return TokenType.CHARACTER;
     }
 
-    private Token scanWhitespace(char firstChar, int startLine, int startCol) {
-        StringBuilder lexeme = new StringBuilder();
-        lexeme.append(firstChar);
-        while (Character.isWhitespace(peek())) {
-            lexeme.append(advance());
-        }
-        return new Token(TokenType.WHITESPACE, lexeme.toString(), startLine, startCol);
+    // fused preprocess: consume a whitespace run in place instead of building a WHITESPACE token,
+    // and drop blank lines from the line count instead of from the text (line/col stay those of the source)
+    private void skipWhitespace() {
+        tokenStart = position; // nothing before here needs to survive a refill
+        do {
+            // indexed loop over what is buffered, refill only at its end
+            int p = position;
+            int end = limit;
+            while (p < end) {
+                char c = buffer[p];
+                if (c == '\n') {
+                    if (!lineHasContent) blankLines++;
+                    lineHasContent = false;
+                } else if (!isWhitespace(c)) {
+                    break;
+                }
+                p++;
+            }
+            position = p;
+        } while (position == limit && fill(1));
+        if (position > tokenStart) statistics.count(TokenType.WHITESPACE);
     }
 
-    private Token scanSingleCharOperator(char c, int startLine, int startCol) {
+    private TokenType scanSingleCharOperator(char c) {
         // fallback for when signed number is actually an operator
         switch (c) {
-            case '+': return new Token(TokenType.ADD, "+", startLine, startCol);
-            case '-': return new Token(TokenType.SUB, "-", startLine, startCol);
-            default: return new Token(TokenType.ERROR, String.valueOf(c), startLine, startCol);
+            case '+': return TokenType.ADD;
+            case '-': return TokenType.SUB;
+            default: return TokenType.ERROR;
         }
     }
 
     public void printSymbolTable() {
+        printSymbolTable(symbolTable);
+    }
+
+    static void printSymbolTable(SymbolTable symbolTable) {
         System.out.println("\nSymbol Table:");
-        for (SymbolTable.Symbol symbol : symbolTable.entries()) {
+        for (int id = 0; id < symbolTable.size(); id++) {
             System.out.printf("Identifier: %s, First Occurrence: Line %d, Column %d, Frequency: %d%n",
-                    symbol.name, symbol.firstLine, symbol.firstColumn, symbol.frequency);
+                    symbolTable.name(id), symbolTable.firstLine(id), symbolTable.firstColumn(id), symbolTable.frequency(id));
         }
     }
 
     // Total tokens, count per token type, lines processed, comments removed
     public void printStatistics() {
-        System.out.println("\nStatistics: ");
+        printStatistics(statistics, symbolTable);
+    }
 
-        System.out.println("Total tokens: " + tokens.size());
+    static void printStatistics(TokenStatistics statistics, SymbolTable symbolTable) {
+        statistics.print();
+        printSymbolTable(symbolTable);
+    }
 
-        System.out.println("\nToken counts:");
-        for (Map.Entry<TokenType, Integer> entry : tokenCounts.entrySet()) {
-            System.out.printf("%s: %d%n", entry.getKey(), entry.getValue());
+    // export labelled statistics to a .json or .csv file, reporting (not throwing) failures
+    static void writeStatistics(java.nio.file.Path out, java.util.List<String> sources, java.util.List<TokenStatistics> rows) {
+        try {
+            TokenStatistics.write(out, sources, rows);
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Failed to write statistics: " + e.getMessage());
         }
+    }
 
-        System.out.println("Lines processed: " + line);
-        int commentCount = tokenCounts.getOrDefault(TokenType.COMMENT, 0);
-        System.out.println("Comments removed: " + commentCount);
-
-        printSymbolTable();
-
+    // --format=binary: scan into a token file; false (after reporting) if it cannot be written
+    private static boolean writeTokens(ManualScanner scanner, java.nio.file.Path out) {
+        try {
+            TokenFile.Writer writer = new TokenFile.Writer(out);
+            try (writer) {
+                scanner.scanInto(writer);
+            }
+            System.out.printf("Wrote %d tokens (%d bytes) to %s%n", writer.getTokenCount(), writer.getBytesWritten(), out);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to write tokens: " + e.getMessage());
+            return false;
+        }
     }
 
-    public static void RunManualScanner(String sourceFile) {
+    private static boolean writeTokens(TokenStream tokens, java.nio.file.Path out) {
+        try {
+            TokenFile.Writer writer = new TokenFile.Writer(out);
+            try (writer) {
+                for (int i = 0; i < tokens.size(); i++) {
+                    if (tokens.getType(i) == TokenType.ERROR) ErrorHandler.handleError(tokens.get(i));
+                    writer.add(tokens, i);
+                }
+            }
+            System.out.printf("Wrote %d tokens (%d bytes) to %s%n", writer.getTokenCount(), writer.getBytesWritten(), out);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to write tokens: " + e.getMessage());
+            return false;
+        }
+    }
 
+    // validated .bili path, or null (after reporting) if unusable
+    private static String checkSourcePath(String sourceFile) {
         // Require a .bili source file via command-line; exit if not provided
         if (sourceFile == null || sourceFile.isEmpty()) {
             System.err.println("Error: No input file provided. Please specify a .bili source file.");
-            return;
+            return null;
         }
         String path = sourceFile.trim();
         if (!path.endsWith(".bili")) {
             System.err.println("Error: input file must have .bili extension");
-            return;
+            return null;
         }
+        return path;
+    }
+
+    public static void RunManualScanner(String sourceFile) {
+        RunManualScanner(sourceFile, false, Engine.BRANCHING);
+    }
+
+    public static TokenStatistics RunManualScanner(String sourceFile, boolean singlePass, Engine engine) {
+        return RunManualScanner(sourceFile, singlePass, engine, null);
+    }
+
+    // singlePass: skip the preprocess() copy; whitespace and blank lines are handled while scanning,
+    // so line/col refer to the original source. tokensOut: write a binary token file (TokenFile) instead
+    // of printing the tokens. Returns the scan statistics (null if the file is unusable).
+    public static TokenStatistics RunManualScanner(String sourceFile, boolean singlePass, Engine engine,
+                                                   java.nio.file.Path tokensOut) {
+
+        String path = checkSourcePath(sourceFile);
+        if (path == null) return null;
 
         String source;
+        long bytes;
         try {
             java.nio.file.Path p = java.nio.file.Paths.get(path);
             source = java.nio.file.Files.readString(p);
+            bytes = java.nio.file.Files.size(p);
         } catch (java.io.IOException e) {
             System.err.println("Failed to read file: " + e.getMessage());
-            return;
+            return null;
         }
 
         ManualScanner scanner = new ManualScanner(source);
+        scanner.setEngine(engine);
+        scanner.statistics.setBytes(bytes);
 
         // preprocess
-        String preprocessed = scanner.preprocess(source);
-        scanner.input = preprocessed; // update input with preprocessed version
+        if (!singlePass) {
+            String preprocessed = scanner.preprocess(source);
+            scanner.setInput(preprocessed, true); // update input with preprocessed version
+        }
 
         //System.out.println("\n=== PREPROCESSED INPUT ===");
         //System.out.println("'" + scanner.input + "'");
 
-        // scan tokens
-        List<Token> tokens = scanner.scanTokens();
-        for (Token token : tokens) {
-            if (token.getType() == TokenType.ERROR) {
-                ErrorHandler.handleError(token);
-                continue;
+        if (tokensOut != null) {
+            if (!writeTokens(scanner, tokensOut)) return null;
+        } else {
+            // scan tokens (compact stream, Token views are created one at a time for printing)
+            TokenStream tokens = scanner.scanTokenStream();
+            for (Token token : tokens) {
+                if (token.getType() == TokenType.ERROR) {
+                    ErrorHandler.handleError(token);
+                    continue;
+                }
+                System.out.println(token);
             }
-            System.out.println(token);
         }
 
         scanner.printStatistics();
+        return scanner.statistics;
+    }
+
+    public static TokenStatistics RunStreamingScanner(String sourceFile, Engine engine) {
+        return RunStreamingScanner(sourceFile, engine, false, null);
+    }
+
+    // streaming variant: constant memory regardless of file size, tokens printed (or written to tokensOut)
+    // as they are scanned, so the scan time includes output; no preprocessing pass, so line/col refer to
+    // the original source. mapped: decode the memory-mapped file (MappedUtf8Reader) instead of reading it
+    public static TokenStatistics RunStreamingScanner(String sourceFile, Engine engine, boolean mapped,
+                                                      java.nio.file.Path tokensOut) {
+
+        String path = checkSourcePath(sourceFile);
+        if (path == null) return null;
+
+        java.nio.file.Path file = java.nio.file.Paths.get(path);
+        try (Reader reader = mapped ? new MappedUtf8Reader(file)
+                : Channels.newReader(java.nio.channels.FileChannel.open(file), StandardCharsets.UTF_8)) {
+            ManualScanner scanner = new ManualScanner(reader);
+            scanner.setEngine(engine);
+            scanner.statistics.setBytes(java.nio.file.Files.size(file));
+            if (tokensOut != null) {
+                if (!writeTokens(scanner, tokensOut)) return null;
+            } else {
+                for (Token token : scanner) {
+                    if (token.getType() == TokenType.ERROR) {
+                        ErrorHandler.handleError(token);
+                        continue;
+                    }
+                    System.out.println(token);
+                }
+            }
+            scanner.printStatistics();
+            return scanner.statistics;
+        } catch (java.io.IOException | UncheckedIOException e) {
+            System.err.println("Failed to read file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static TokenStatistics RunParallelScanner(String sourceFile, Engine engine, int threads) {
+        return RunParallelScanner(sourceFile, engine, threads, null);
+    }
+
+    // parallel variant for large files: chunks are scanned on `threads` workers and stitched back together,
+    // output matches the single-pass scan
+    public static TokenStatistics RunParallelScanner(String sourceFile, Engine engine, int threads,
+                                                     java.nio.file.Path tokensOut) {
+
+        String path = checkSourcePath(sourceFile);
+        if (path == null) return null;
+
+        String source;
+        long bytes;
+        try {
+            java.nio.file.Path p = java.nio.file.Paths.get(path);
+            source = java.nio.file.Files.readString(p);
+            bytes = java.nio.file.Files.size(p);
+        } catch (java.io.IOException e) {
+            System.err.println("Failed to read file: " + e.getMessage());
+            return null;
+        }
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+        try {
+            ParallelScanner.Result result = new ParallelScanner(pool, engine).scan(source);
+            result.getStatistics().setBytes(bytes);
+            if (tokensOut != null) {
+                if (!writeTokens(result.getTokens(), tokensOut)) return null;
+            } else {
+                for (Token token : result.getTokens()) {
+                    if (token.getType() == TokenType.ERROR) {
+                        ErrorHandler.handleError(token);
+                        continue;
+                    }
+                    System.out.println(token);
+                }
+            }
+            result.printStatistics();
+            return result.getStatistics();
+        } finally {
+            pool.shutdown();
+        }
     }
 }
@@ -0,0 +1,127 @@
+package Scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// UTF-8 source read straight from a memory-mapped file (--mmap), for the streaming scanner: no heap copy of
+// the file and no byte[] -> String -> char[] passes. ASCII runs are widened to chars in a tight loop over
+// bulk-copied blocks; only bytes >= 0x80 go through a CharsetDecoder (malformed input is an error, as with
+// Files.readString). Large files are mapped one window at a time.
+public final class MappedUtf8Reader extends Reader {
+
+    private static final long WINDOW_SIZE = 1L << 28; // bytes mapped at once
+    private static final int BLOCK = 8192; // ASCII bytes copied per bulk get
+    private static final int DECODE_CHARS = 64; // chars decoded per non-ASCII detour
+
+    private final long windowSize;
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart; // file offset of window position 0
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final byte[] block = new byte[BLOCK];
+    private final char[] pair = new char[2]; // a supplementary char that did not fit the caller's buffer
+    private int pending = -1; // low surrogate still to be returned, -1 if none
+    private boolean eof;
+
+    public MappedUtf8Reader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    MappedUtf8Reader(Path path, long windowSize) throws IOException {
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() { return size; }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        int i = off;
+        int end = off + len;
+        if (pending >= 0) {
+            cbuf[i++] = (char) pending;
+            pending = -1;
+        }
+        while (i < end && !eof) {
+            int p = window.position();
+            int lim = window.limit();
+            if (p == lim) {
+                if (windowStart + lim == size) {
+                    eof = true;
+                    break;
+                }
+                map(windowStart + lim);
+                continue;
+            }
+
+            // ASCII fast path
+            int n = Math.min(Math.min(end - i, lim - p), BLOCK);
+            window.get(p, block, 0, n);
+            int k = 0;
+            while (k < n && block[k] >= 0) {
+                cbuf[i++] = (char) block[k++];
+            }
+            window.position(p + k);
+            if (k == n) continue;
+
+            // non-ASCII: let the decoder handle a few chars, then back to the fast path
+            int produced = decode(cbuf, i, Math.min(end - i, DECODE_CHARS));
+            if (produced == 0 && i == off) {
+                // caller's room is one char and the next one is a surrogate pair
+                int got = decode(pair, 0, 2);
+                if (got > 0) cbuf[i++] = pair[0];
+                if (got == 2) pending = pair[1];
+                continue;
+            }
+            if (produced == 0) break; // no room for a surrogate pair: return what we have
+            i += produced;
+        }
+        return i == off ? -1 : i - off;
+    }
+
+    // decode into cbuf[from, from + room) from the window; returns chars produced (0: no progress possible
+    // without more output room). A sequence cut by the window end is re-mapped into the next window.
+    private int decode(char[] cbuf, int from, int room) throws IOException {
+        CharBuffer out = CharBuffer.wrap(cbuf, from, room);
+        while (true) {
+            ByteBuffer in = window;
+            boolean last = windowStart + in.limit() == size;
+            CoderResult result = decoder.decode(in, out, last);
+            if (result.isError()) result.throwException();
+            int produced = out.position() - from;
+            if (result.isOverflow() || produced > 0 || !in.hasRemaining()) return produced;
+            // underflow on an incomplete sequence at the window end: re-map from its first byte
+            if (last) return produced;
+            map(windowStart + in.position());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
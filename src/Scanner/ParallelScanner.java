@@ -0,0 +1,292 @@
+package Scanner;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Scans one large in-memory source on a fork-join pool.
+//
+// 1. The source is cut into chunks at line starts and every chunk is scanned speculatively, as if it
+//    began at a token boundary; each chunk also collects its line starts for the LineIndex.
+// 2. The chunks are stitched in order. ManualScanner keeps no state between tokens, so a chunk is
+//    valid from the first of its token starts that the (correct) scan of everything before it also
+//    reaches. If the previous chunk ended inside a string or a #* *# comment that crosses the cut,
+//    the stitcher rescans from where the previous chunk really ended until it lands on one of the
+//    speculative token starts again (or runs past the chunk).
+// 3. Token counts, per-chunk symbol tables and blank lines are computed in parallel over the stitched
+//    runs and merged in source order; the runs are then copied into one TokenStream in parallel.
+//
+// Output (tokens, positions, statistics) is the same as a single-pass ManualScanner.scanTokenStream().
+public class ParallelScanner {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final ManualScanner.Engine engine;
+    private final int minChunkSize;
+    private boolean decodeLiterals; // see ManualScanner.setDecodeLiterals
+
+    public ParallelScanner(ForkJoinPool pool, ManualScanner.Engine engine) {
+        this(pool, engine, MIN_CHUNK_SIZE);
+    }
+
+    ParallelScanner(ForkJoinPool pool, ManualScanner.Engine engine, int minChunkSize) {
+        this.pool = pool;
+        this.engine = engine;
+        this.minChunkSize = minChunkSize;
+    }
+
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool(), ManualScanner.Engine.BRANCHING);
+    }
+
+    public void setDecodeLiterals(boolean decodeLiterals) {
+        this.decodeLiterals = decodeLiterals;
+    }
+
+    // --------------- Result ---------------
+    public static class Result {
+        private final TokenStream tokens;
+        private final SymbolTable symbolTable;
+        private final TokenStatistics statistics;
+
+        Result(TokenStream tokens, SymbolTable symbolTable, TokenStatistics statistics) {
+            this.tokens = tokens;
+            this.symbolTable = symbolTable;
+            this.statistics = statistics;
+        }
+
+        public TokenStream getTokens() { return tokens; }
+        public SymbolTable getSymbolTable() { return symbolTable; }
+        public TokenStatistics getStatistics() { return statistics; }
+
+        public void printStatistics() {
+            ManualScanner.printStatistics(statistics, symbolTable);
+        }
+    }
+
+    // speculative scan of [from, to): tokens starting in the chunk (comments included)
+    private static class Chunk {
+        int from;
+        int to;
+        TokenStream tokens;
+        int end; // where the scan stopped: first token start at/after `to`, or the source length
+        LineIndex.Builder lines; // line starts after the newlines in [from, to)
+    }
+
+    // validated run of tokens [from, to) of a stream, in final order
+    private static class Part {
+        final TokenStream tokens;
+        final int from;
+        final int to;
+        int dest; // index of the run's first non-comment token in the final stream
+        int prevEnd; // end offset of the token before this run, -1 if none
+
+        Part(TokenStream tokens, int from, int to) {
+            this.tokens = tokens;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    // per-run statistics, merged in order afterwards
+    private static class PartStats {
+        final TokenStatistics statistics = new TokenStatistics();
+        final SymbolTable symbols = new SymbolTable();
+        int blankLines;
+        int written;
+    }
+
+    public Result scan(String input) {
+        long scanStart = System.nanoTime();
+        char[] source = input.toCharArray();
+        int[] bounds = chunkBounds(source);
+
+        // 1. speculative chunk scans
+        List<Callable<Chunk>> scans = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = bounds[i], to = bounds[i + 1];
+            scans.add(() -> scanChunk(source, from, to));
+        }
+        List<Chunk> chunks = invokeAll(scans);
+
+        // 2. stitch
+        List<Part> parts = stitch(source, chunks);
+        LineIndex.Builder lineStarts = chunks.get(0).lines;
+        for (int i = 1; i < chunks.size(); i++) lineStarts.add(chunks.get(i).lines);
+        LineIndex lines = lineStarts.build();
+
+        // 3. statistics per run
+        int prevEnd = -1;
+        for (Part part : parts) {
+            part.prevEnd = prevEnd;
+            prevEnd = part.tokens.getStart(part.to - 1) + part.tokens.getLength(part.to - 1);
+        }
+        List<Callable<PartStats>> stats = new ArrayList<>();
+        for (Part part : parts) {
+            stats.add(() -> partStats(source, lines, part));
+        }
+        List<PartStats> partStats = invokeAll(stats);
+
+        TokenStatistics statistics = new TokenStatistics();
+        SymbolTable symbolTable = new SymbolTable();
+        int blankLines = 0;
+        int total = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            PartStats ps = partStats.get(i);
+            statistics.add(ps.statistics);
+            symbolTable.merge(ps.symbols);
+            blankLines += ps.blankLines;
+            parts.get(i).dest = total;
+            total += ps.written;
+        }
+        int tail = countNewlines(source, Math.max(prevEnd, 0), source.length);
+        blankLines += prevEnd < 0 ? tail : Math.max(0, tail - 1);
+        if (source.length > Math.max(prevEnd, 0)) statistics.count(TokenType.WHITESPACE);
+        statistics.setLinesProcessed(lines.lineCount() - blankLines);
+        statistics.setChars(source.length);
+
+        // 4. copy runs into the final stream
+        TokenStream tokens = new TokenStream(source, total, decodeLiterals);
+        tokens.setLineIndex(lines);
+        List<Callable<Integer>> copies = new ArrayList<>();
+        for (Part part : parts) {
+            copies.add(() -> tokens.copyFrom(part.tokens, part.from, part.to, part.dest));
+        }
+        invokeAll(copies);
+        tokens.setSize(total);
+
+        statistics.setNanos(System.nanoTime() - scanStart);
+        return new Result(tokens, symbolTable, statistics);
+    }
+
+    // chunk boundaries snapped to line starts; a few chunks per worker so a slow chunk doesn't stall the pool
+    // (a single worker gets a single chunk: nothing to overlap, and no resync work)
+    private int[] chunkBounds(char[] source) {
+        int n = source.length;
+        int workers = pool.getParallelism();
+        int chunks = workers == 1 ? 1 : Math.max(1, Math.min(n / minChunkSize, workers * 4));
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (int i = 1; i < chunks; i++) {
+            int b = (int) ((long) n * i / chunks);
+            while (b < n && source[b - 1] != '\n') b++;
+            if (b < n && b > bounds.get(bounds.size() - 1)) bounds.add(b);
+        }
+        bounds.add(n);
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    private Chunk scanChunk(char[] source, int from, int to) {
+        Chunk chunk = new Chunk();
+        chunk.from = from;
+        chunk.to = to;
+        chunk.tokens = new TokenStream(source, Math.max(16, (to - from) / 4), decodeLiterals);
+        ManualScanner scanner = ManualScanner.forChunk(source, from, engine);
+        scanner.setDecodeLiterals(decodeLiterals);
+        int next;
+        while ((next = scanner.skipToNextToken()) < to) {
+            scanner.lexInto(chunk.tokens);
+        }
+        chunk.end = next;
+        chunk.lines = new LineIndex.Builder().add(source, from, to);
+        return chunk;
+    }
+
+    private List<Part> stitch(char[] source, List<Chunk> chunks) {
+        List<Part> parts = new ArrayList<>();
+        Chunk first = chunks.get(0);
+        addPart(parts, new Part(first.tokens, 0, first.tokens.size()));
+
+        int p = first.end; // start of the next token of the sequential scan
+        for (int i = 1; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+
+            ManualScanner rescan = null;
+            TokenStream fixed = null;
+            int idx = 0;
+            int q = p;
+            while (true) {
+                if (q >= chunk.to) {
+                    // the sequential scan went past this chunk: none of its speculation is used
+                    if (rescan != null) addPart(parts, new Part(fixed, 0, fixed.size()));
+                    p = q;
+                    break;
+                }
+                idx = chunk.tokens.lowerBound(idx, q);
+                if (idx < chunk.tokens.size() && chunk.tokens.getStart(idx) == q) {
+                    // resynchronised: from here on the speculative tokens are the sequential ones
+                    if (rescan != null) addPart(parts, new Part(fixed, 0, fixed.size()));
+                    addPart(parts, new Part(chunk.tokens, idx, chunk.tokens.size()));
+                    p = chunk.end;
+                    break;
+                }
+                if (rescan == null) {
+                    rescan = ManualScanner.forChunk(source, p, engine);
+                    rescan.setDecodeLiterals(decodeLiterals);
+                    fixed = new TokenStream(source, TokenStream.INITIAL_CAPACITY, decodeLiterals);
+                }
+                rescan.lexInto(fixed);
+                q = rescan.skipToNextToken();
+            }
+        }
+        return parts;
+    }
+
+    private static void addPart(List<Part> parts, Part part) {
+        if (part.to > part.from) parts.add(part);
+    }
+
+    private static PartStats partStats(char[] source, LineIndex lines, Part part) {
+        PartStats stats = new PartStats();
+        TokenStream tokens = part.tokens;
+        int prevEnd = part.prevEnd;
+        for (int i = part.from; i < part.to; i++) {
+            int start = tokens.getStart(i);
+            TokenType type = tokens.getType(i);
+
+            // whitespace run & blank lines in the gap before this token (same rules as skipWhitespace())
+            int gapStart = Math.max(prevEnd, 0);
+            if (start > gapStart) stats.statistics.count(TokenType.WHITESPACE);
+            int gap = countNewlines(source, gapStart, start);
+            stats.blankLines += prevEnd < 0 ? gap : Math.max(0, gap - 1);
+            prevEnd = start + tokens.getLength(i);
+
+            stats.statistics.count(type);
+            if (type == TokenType.COMMENT) continue;
+            stats.written++;
+            if (type == TokenType.IDENTIFIER) {
+                int length = tokens.getLength(i);
+                int id = stats.symbols.intern(source, start, length);
+                if (id < 0) {
+                    stats.symbols.setFirstOccurrence(-(id + 1), lines.line(start), lines.column(start));
+                }
+            }
+        }
+        return stats;
+    }
+
+    private static int countNewlines(char[] source, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (source[i] == '\n') n++;
+        }
+        return n;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Parallel scan interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Parallel scan failed", e.getCause());
+            }
+        }
+        return results;
+    }
+}
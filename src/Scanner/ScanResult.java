@@ -0,0 +1,23 @@
+package Scanner;
+
+// Outcome of ManualScanner.scan(): the token stream (comments dropped), symbol table and statistics.
+// These are views of the scanner's own buffers, reused by its next scan()/reset(): read what is needed
+// (or copy it) before scanning the next input. The stream's source array may be longer than the input,
+// so it is not meant for IncrementalLexer.
+public final class ScanResult {
+
+    private final TokenStream tokens;
+    private final SymbolTable symbolTable;
+    private final TokenStatistics statistics;
+
+    ScanResult(TokenStream tokens, SymbolTable symbolTable, TokenStatistics statistics) {
+        this.tokens = tokens;
+        this.symbolTable = symbolTable;
+        this.statistics = statistics;
+    }
+
+    public TokenStream getTokens() { return tokens; }
+    public SymbolTable getSymbolTable() { return symbolTable; }
+    public TokenStatistics getStatistics() { return statistics; }
+    public int getErrorCount() { return statistics.getCount(TokenType.ERROR); }
+}
@@ -0,0 +1,112 @@
+package Scanner;
+
+// Precomputed ASCII tables for the TABLE engine of ManualScanner.
+// Character classes replace Unicode classification for ASCII chars; the operator DFA
+// (start --c--> state --next--> two-char accept, else single-char accept) replaces the if-chain.
+final class ScannerTables {
+
+    private ScannerTables() {}
+
+    // character classes (ASCII only, non-ASCII goes through java.lang.Character)
+    static final byte OTHER = 0;      // invalid character
+    static final byte UPPER = 1;      // A-Z: identifier start
+    static final byte LOWER = 2;      // a-z: keyword start
+    static final byte DIGIT = 3;      // 0-9
+    static final byte SPACE = 4;      // whitespace
+    static final byte QUOTE = 5;      // "
+    static final byte APOSTROPHE = 6; // '
+    static final byte HASH = 7;       // # (comment start)
+    static final byte OPERATOR = 8;   // operator or punctuator start
+    static final byte UNDERSCORE = 9; // _
+
+    static final byte[] CLASS = new byte[128];
+
+    // operator DFA: OP_STATE[c] is the state after reading c; ACCEPT[state] the single-char token,
+    // PAIR[state * SECOND_CLASSES + SECOND[next]] the two-char token (null = no transition)
+    private static final int SECOND_CLASSES = 7; // none, * = & | + -
+    private static final byte[] SECOND = new byte[128];
+    static final byte[] OP_STATE = new byte[128];
+    static final TokenType[] ACCEPT;
+    private static final TokenType[] PAIR;
+
+    // fixed lexemes by token ordinal (null for token types with variable lexemes)
+    static final String[] LEXEME = new String[TokenType.values().length];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) CLASS[c] = SPACE;
+            else if (Character.isUpperCase(c)) CLASS[c] = UPPER;
+            else if (Character.isLowerCase(c)) CLASS[c] = LOWER;
+            else if (Character.isDigit(c)) CLASS[c] = DIGIT;
+        }
+        CLASS['"'] = QUOTE;
+        CLASS['\''] = APOSTROPHE;
+        CLASS['#'] = HASH;
+        CLASS['_'] = UNDERSCORE;
+
+        SECOND['*'] = 1;
+        SECOND['='] = 2;
+        SECOND['&'] = 3;
+        SECOND['|'] = 4;
+        SECOND['+'] = 5;
+        SECOND['-'] = 6;
+
+        String starts = "*=!<>&|+-/%(){}[],;:";
+        ACCEPT = new TokenType[starts.length() + 1];
+        PAIR = new TokenType[(starts.length() + 1) * SECOND_CLASSES];
+        for (int i = 0; i < starts.length(); i++) {
+            char c = starts.charAt(i);
+            CLASS[c] = OPERATOR;
+            OP_STATE[c] = (byte) (i + 1);
+        }
+
+        single('+', TokenType.ADD);
+        single('-', TokenType.SUB);
+        single('*', TokenType.MUL);
+        single('/', TokenType.DIV);
+        single('%', TokenType.MOD);
+        single('<', TokenType.LESS_THAN);
+        single('>', TokenType.GREATER_THAN);
+        single('!', TokenType.LOGICAL_NOT);
+        single('=', TokenType.ASSIGN);
+        single('(', TokenType.LEFT_PAREN);
+        single(')', TokenType.RIGHT_PAREN);
+        single('{', TokenType.LEFT_BRACE);
+        single('}', TokenType.RIGHT_BRACE);
+        single('[', TokenType.LEFT_BRACKET);
+        single(']', TokenType.RIGHT_BRACKET);
+        single(',', TokenType.COMMA);
+        single(';', TokenType.SEMICOLON);
+        single(':', TokenType.COLON);
+        // '&' and '|' have no single-char accept: alone they are invalid characters
+
+        pair("**", TokenType.EXP);
+        pair("==", TokenType.EQUAL);
+        pair("!=", TokenType.NOT_EQUAL);
+        pair("<=", TokenType.LESS_EQUAL);
+        pair(">=", TokenType.GREATER_EQUAL);
+        pair("&&", TokenType.LOGICAL_AND);
+        pair("||", TokenType.LOGICAL_OR);
+        pair("++", TokenType.INC);
+        pair("--", TokenType.DEC);
+        pair("+=", TokenType.ADD_ASSIGN);
+        pair("-=", TokenType.SUB_ASSIGN);
+        pair("*=", TokenType.MUL_ASSIGN);
+        pair("/=", TokenType.DIV_ASSIGN);
+    }
+
+    private static void single(char c, TokenType type) {
+        ACCEPT[OP_STATE[c]] = type;
+        LEXEME[type.ordinal()] = String.valueOf(c);
+    }
+
+    private static void pair(String op, TokenType type) {
+        PAIR[OP_STATE[op.charAt(0)] * SECOND_CLASSES + SECOND[op.charAt(1)]] = type;
+        LEXEME[type.ordinal()] = op;
+    }
+
+    // two-char operator for state followed by next, or null
+    static TokenType pair(int state, char next) {
+        return next < 128 ? PAIR[state * SECOND_CLASSES + SECOND[next]] : null;
+    }
+}
@@ -0,0 +1,53 @@
+package Scanner;
+
+// Bulk search used by the ManualScanner DFAs to cross long comment and string bodies: each call scans
+// buf[from, to) directly (no peek()/advance()/end-of-input check per char), four chars per iteration,
+// and returns the index of the first stop char, or `to` if there is none.
+//
+// Plain Java on purpose: the Vector API is still an incubator module (extra --add-modules flags to build
+// and run), and word-at-a-time (SWAR) tricks need a byte[] view, which char[] does not offer.
+final class SkipKernels {
+
+    private SkipKernels() {}
+
+    static int indexOf(char[] buf, int from, int to, char a) {
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            if (buf[i] == a) return i;
+            if (buf[i + 1] == a) return i + 1;
+            if (buf[i + 2] == a) return i + 2;
+            if (buf[i + 3] == a) return i + 3;
+        }
+        for (; i < to; i++) {
+            if (buf[i] == a) return i;
+        }
+        return to;
+    }
+
+    static int indexOfAny(char[] buf, int from, int to, char a, char b) {
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            char c0 = buf[i], c1 = buf[i + 1], c2 = buf[i + 2], c3 = buf[i + 3];
+            if ((c0 == a) | (c0 == b) | (c1 == a) | (c1 == b) | (c2 == a) | (c2 == b) | (c3 == a) | (c3 == b)) break;
+        }
+        for (; i < to; i++) {
+            char c = buf[i];
+            if (c == a || c == b) return i;
+        }
+        return to;
+    }
+
+    static int indexOfAny(char[] buf, int from, int to, char a, char b, char c) {
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            char c0 = buf[i], c1 = buf[i + 1], c2 = buf[i + 2], c3 = buf[i + 3];
+            if ((c0 == a) | (c0 == b) | (c0 == c) | (c1 == a) | (c1 == b) | (c1 == c)
+                    | (c2 == a) | (c2 == b) | (c2 == c) | (c3 == a) | (c3 == b) | (c3 == c)) break;
+        }
+        for (; i < to; i++) {
+            char x = buf[i];
+            if (x == a || x == b || x == c) return i;
+        }
+        return to;
+    }
+}
@@ -2,15 +2,22 @@ package Scanner;
 
 import java.util.*;
 
+// Identifiers get dense int ids in order of first occurrence; name, first line/col and frequency live in
+// parallel arrays indexed by id. Lookup is open addressing (linear probing) keyed on the source char range,
+// so counting another occurrence creates nothing: only a new identifier allocates its (shared) name String.
+//
+// Tables are not thread-safe; parallel scans build one table per chunk and merge() them in source order,
+// which keeps first occurrences and the iteration order those of a sequential scan.
 public class SymbolTable {
 
+    // read-only view of one entry (see entries())
     public static class Symbol {
-        
+
         public final String name; // identifier name
         public final int firstLine;
         public final int firstColumn;
         public int frequency;
-        
+
         public Symbol(String name, int line, int column) {
             this.name = name;
             this.firstLine = line;
@@ -19,24 +26,168 @@ public class SymbolTable {
         }
     }
 
-    // list of symbols
-    // hash map for quick lookup by identifier name to increment frequency
-    // use linkedhashmap to preserve insertion order (appear in order of occurence in source code)
-    private final Map<String, Symbol> table = new LinkedHashMap<>();
+    private static final int INITIAL_CAPACITY = 64; // entries; the hash has twice as many slots
+
+    // per id, in insertion order (appear in order of occurence in source code)
+    private String[] names;
+    private int[] hashes;
+    private int[] firstLines;
+    private int[] firstColumns;
+    private int[] frequencies;
+    private int size;
+
+    // open-addressing hash: slot holds id + 1, 0 = empty; kept at most half full
+    private int[] slots;
+    private int mask;
+
+    public SymbolTable() {
+        names = new String[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        firstLines = new int[INITIAL_CAPACITY];
+        firstColumns = new int[INITIAL_CAPACITY];
+        frequencies = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY * 2];
+        mask = slots.length - 1;
+    }
+
+    // count an occurrence of buf[start, start + length); returns its id, or -(id + 1) if the identifier is
+    // new (its first position is then recorded with setFirstOccurrence)
+    public int intern(char[] buf, int start, int length) {
+        int hash = hash(buf, start, length);
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], buf, start, length)) {
+                frequencies[id]++;
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = insert(new String(buf, start, length), hash, slot);
+        return -(id + 1);
+    }
+
+    public void setFirstOccurrence(int id, int line, int column) {
+        firstLines[check(id)] = line;
+        firstColumns[id] = column;
+    }
+
+    // add identifier spelled by buf[start, start + length); returns the shared name String for it
+    public String add(char[] buf, int start, int length, int line, int column) {
+        int id = intern(buf, start, length);
+        if (id < 0) {
+            id = -(id + 1);
+            setFirstOccurrence(id, line, column);
+        }
+        return names[id];
+    }
 
     public void add(String identifier, int line, int column) {
-        Symbol e = table.get(identifier);
-        if (e == null) {
-            e = new Symbol(identifier, line, column);
-            table.put(identifier, e);
-        } else {
-            // if alr in table, just increment frequency
-            e.frequency++;
+        add(identifier.toCharArray(), 0, identifier.length(), line, column);
+    }
+
+    // fold in a table built from source that comes after this one: first occurrences stay ours,
+    // frequencies add up, new identifiers are appended in their order
+    public void merge(SymbolTable later) {
+        for (int i = 0; i < later.size; i++) {
+            String name = later.names[i];
+            int hash = later.hashes[i];
+            int slot = hash & mask;
+            int entry;
+            int id = -1;
+            while ((entry = slots[slot]) != 0) {
+                if (hashes[entry - 1] == hash && names[entry - 1].equals(name)) {
+                    id = entry - 1;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (id >= 0) {
+                frequencies[id] += later.frequencies[i];
+            } else {
+                id = insert(name, hash, slot);
+                firstLines[id] = later.firstLines[i];
+                firstColumns[id] = later.firstColumns[i];
+                frequencies[id] = later.frequencies[i];
+            }
         }
     }
 
+    // drop all entries, keeping the arrays (ManualScanner.reset)
+    void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public String name(int id) { return names[check(id)]; }
+    public int firstLine(int id) { return firstLines[check(id)]; }
+    public int firstColumn(int id) { return firstColumns[check(id)]; }
+    public int frequency(int id) { return frequencies[check(id)]; }
+
+    // snapshot views in insertion order
     public Collection<Symbol> entries() {
-        return table.values();
+        List<Symbol> symbols = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            Symbol symbol = new Symbol(names[id], firstLines[id], firstColumns[id]);
+            symbol.frequency = frequencies[id];
+            symbols.add(symbol);
+        }
+        return symbols;
+    }
+
+    // new entry at an empty slot found by probing; frequency 1, position unset
+    private int insert(String name, int hash, int slot) {
+        if (size == names.length) growEntries();
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        frequencies[id] = 1;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void growEntries() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        firstLines = Arrays.copyOf(firstLines, capacity);
+        firstColumns = Arrays.copyOf(firstColumns, capacity);
+        frequencies = Arrays.copyOf(frequencies, capacity);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
     }
-}
 
+    // String.hashCode() of the range, spread so that linear probing on the low bits behaves
+    private static int hash(char[] buf, int start, int length) {
+        int h = 0;
+        for (int i = start, end = start + length; i < end; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String name, char[] buf, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buf[start + i]) return false;
+        }
+        return true;
+    }
+
+    private int check(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Symbol id " + id + " out of range (size " + size + ")");
+        return id;
+    }
+}
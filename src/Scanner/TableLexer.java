@@ -0,0 +1,93 @@
+package Scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Generic driver for generated LexerTables: from each position the DFA runs as far as it can and the
+// longest accepted prefix is the token (equal lengths went to the earlier rule when the tables were
+// built), as in JFlex. Matches of rules without a token (whitespace, comments) are dropped; a char that
+// starts no match becomes a one-char ERROR token.
+public final class TableLexer {
+
+    private final LexerTables tables;
+
+    public TableLexer(LexerTables tables) {
+        this.tables = tables;
+    }
+
+    public TokenStream scan(String input) {
+        char[] source = input.toCharArray();
+        TokenStream tokens = new TokenStream(source);
+        tokens.setLineIndex(LineIndex.of(source, source.length));
+
+        char[] blockIndex = tables.blockIndex;
+        short[] classMap = tables.classMap;
+        int classes = tables.classCount;
+        int[] next = tables.next;
+        int[] accept = tables.accept;
+        int n = source.length;
+        int pos = 0;
+        while (pos < n) {
+            int state = 0;
+            int rule = -1;
+            int matchEnd = pos;
+            for (int i = pos; i < n; ) {
+                char c = source[i++];
+                state = next[state * classes + classMap[(blockIndex[c >>> 8] << 8) | (c & 0xFF)]];
+                if (state < 0) break;
+                int a = accept[state];
+                if (a >= 0) {
+                    rule = a;
+                    matchEnd = i;
+                }
+            }
+            if (rule < 0) {
+                tokens.add(TokenType.ERROR, pos, 1, "Invalid character");
+                pos++;
+                continue;
+            }
+            TokenType type = tables.ruleTypes[rule];
+            if (type != null) tokens.add(type, pos, matchEnd - pos, tables.ruleReasons[rule]);
+            pos = matchEnd;
+        }
+        return tokens;
+    }
+
+    // generate the lexer from spec, then scan sourceFile and print its tokens like the other scanners;
+    // generation and scan times are reported to compare the table engine with the other lexers
+    public static void RunTableLexer(String sourceFile, Path spec) {
+        long start = System.nanoTime();
+        LexerTables tables;
+        try {
+            tables = LexerGenerator.generate(spec);
+        } catch (IOException e) {
+            System.err.println("Failed to read lexer spec: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid lexer spec: " + e.getMessage());
+            return;
+        }
+        long generated = System.nanoTime();
+        System.out.printf("Generated from %s in %.1f ms: %s%n", spec, (generated - start) / 1e6, tables);
+
+        String source;
+        try {
+            source = Files.readString(Path.of(sourceFile));
+        } catch (IOException e) {
+            System.err.println("Failed to read file: " + e.getMessage());
+            return;
+        }
+        long scanStart = System.nanoTime();
+        TokenStream tokens = new TableLexer(tables).scan(source);
+        long scanned = System.nanoTime();
+        for (Token token : tokens) {
+            if (token.getType() == TokenType.ERROR) {
+                ErrorHandler.handleError(token);
+                continue;
+            }
+            System.out.println(token);
+        }
+        System.out.printf("Scanned %d tokens in %.1f ms%n", tokens.size(), (scanned - scanStart) / 1e6);
+    }
+}
@@ -6,6 +6,10 @@ public class Token {
     private int line;
     private int column;
     private String reason; // for error tokens
+    private LineIndex lines; // set until line/col are resolved from offset
+    private int offset;
+    private long value; // INTEGER value or FLOAT bits decoded by the scanner
+    private boolean hasValue;
 
     public Token(TokenType type, String lexeme, int line, int column) {
         this.type = type;
@@ -23,18 +27,66 @@ public class Token {
         this.reason = reason;
     }
 
+    // token that knows only its source offset; line/col are looked up the first time they are needed
+    public Token(TokenType type, String lexeme, int offset, LineIndex lines, String reason) {
+        this.type = type;
+        this.lexeme = lexeme;
+        this.offset = offset;
+        this.lines = lines;
+        this.reason = reason;
+    }
+
+    private void resolvePosition() {
+        if (lines != null) {
+            line = lines.line(offset);
+            column = lines.column(offset);
+            lines = null;
+        }
+    }
+
+    // value decoded while scanning (ManualScanner.setDecodeLiterals); raw double bits for FLOAT
+    void setValue(long value) {
+        this.value = value;
+        this.hasValue = true;
+    }
+
     // Getters
     public TokenType getType() { return type; }
     public String getLexeme() { return lexeme; }
-    public int getLine() { return line; }
-    public int getColumn() { return column; }
+    public int getLine() { resolvePosition(); return line; }
+    public int getColumn() { resolvePosition(); return column; }
     public String getReason() { return reason; }
 
+    // literal values; decoded from the lexeme if the scanner did not attach them
+    public long getIntValue() {
+        expect(TokenType.INTEGER);
+        return hasValue ? value : Literals.integer(lexeme.toCharArray(), 0, lexeme.length());
+    }
+
+    public double getFloatValue() {
+        expect(TokenType.FLOAT);
+        return hasValue ? Double.longBitsToDouble(value) : Literals.floating(lexeme.toCharArray(), 0, lexeme.length());
+    }
+
+    public String getStringValue() {
+        expect(TokenType.STRING);
+        return Literals.string(lexeme.toCharArray(), 0, lexeme.length());
+    }
+
+    public char getCharValue() {
+        expect(TokenType.CHARACTER);
+        return Literals.character(lexeme.toCharArray(), 0, lexeme.length());
+    }
+
+    private void expect(TokenType literal) {
+        if (type != literal) throw new IllegalStateException(type + " token has no " + literal + " value");
+    }
+
     @Override
     public String toString() {
         // to print for parse output
         // e.g. <KEYWORD, "start", Line: 1, Col: 1>
         return String.format("<%s, \"%s\", Line: %d, Col: %d>",
-                type, lexeme, line, column);
+                type, lexeme, getLine(), getColumn());
     }
 }
@@ -0,0 +1,286 @@
+package Scanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Compact binary token file (--format=binary), for tools that consume the scanner's tokens without
+// re-parsing Token.toString() lines.
+//
+//   header   "BILT" (4 bytes), version (int)
+//   tokens   per token, unsigned LEB128 varints:
+//              type ordinal, offset - previous offset, line - previous line, column, lexeme id,
+//              and for ERROR tokens only: reason id + 1 (0 = no reason)
+//   pool     per id: UTF-8 byte length (varint), bytes; every distinct lexeme (and reason) once
+//   footer   token count (long), pool offset (long), pool size (int), "BILT" (4 bytes)
+//
+// Offsets are char offsets in the scanned text, lines/columns are those the scanner reports; both never
+// decrease from one token to the next, so their deltas are mostly one byte. Ints are big-endian.
+public final class TokenFile {
+
+    public static final int MAGIC = 0x42494C54; // "BILT"
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FOOTER_SIZE = 24;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private TokenFile() {}
+
+    // streams token records out; the lexeme pool and footer are written by close()
+    public static final class Writer implements Closeable {
+
+        private final OutputStream out;
+        private final byte[] buf = new byte[1 << 16];
+        private int n;
+        private long written; // bytes flushed to out
+        private long count;
+        private long lastOffset;
+        private int lastLine;
+        private char[] scratch = new char[64];
+        private final SymbolTable pool = new SymbolTable(); // interns lexemes by char range: id = pool index
+        private boolean closed;
+
+        public Writer(Path path) throws IOException {
+            this.out = Files.newOutputStream(path);
+            writeInt(MAGIC);
+            writeInt(VERSION);
+        }
+
+        // token whose lexeme is source[start, start + length)
+        public void add(TokenType type, long offset, int line, int column,
+                        char[] source, int start, int length, String reason) throws IOException {
+            if (offset < lastOffset || line < lastLine) {
+                throw new IllegalArgumentException("Tokens must be added in source order (offset " + offset
+                        + ", line " + line + " after offset " + lastOffset + ", line " + lastLine + ")");
+            }
+            if (n > buf.length - 64) flush();
+            writeVarint(type.ordinal());
+            writeVarint(offset - lastOffset);
+            writeVarint(line - lastLine);
+            writeVarint(column);
+            writeVarint(intern(source, start, length));
+            if (type == TokenType.ERROR) {
+                writeVarint(reason == null ? 0 : intern(reason) + 1);
+            }
+            lastOffset = offset;
+            lastLine = line;
+            count++;
+        }
+
+        public void add(TokenType type, long offset, int line, int column, String lexeme, String reason) throws IOException {
+            char[] chars = chars(lexeme);
+            add(type, offset, line, column, chars, 0, lexeme.length(), reason);
+        }
+
+        // token i of stream
+        public void add(TokenStream tokens, int i) throws IOException {
+            int start = tokens.getStart(i);
+            add(tokens.getType(i), start, tokens.getLine(i), tokens.getColumn(i),
+                    tokens.source(), start, tokens.getLength(i), tokens.getReason(i));
+        }
+
+        public long getTokenCount() { return count; }
+        public long getBytesWritten() { return written + n; }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                long poolOffset = getBytesWritten();
+                for (int id = 0; id < pool.size(); id++) {
+                    byte[] utf8 = pool.name(id).getBytes(StandardCharsets.UTF_8);
+                    if (n > buf.length - 8) flush();
+                    writeVarint(utf8.length);
+                    writeBytes(utf8);
+                }
+                if (n > buf.length - FOOTER_SIZE) flush();
+                writeLong(count);
+                writeLong(poolOffset);
+                writeInt(pool.size());
+                writeInt(MAGIC);
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+
+        private int intern(char[] source, int start, int length) {
+            int id = pool.intern(source, start, length);
+            return id < 0 ? -(id + 1) : id;
+        }
+
+        private int intern(String s) {
+            return intern(chars(s), 0, s.length());
+        }
+
+        private char[] chars(String s) {
+            if (s.length() > scratch.length) scratch = new char[Math.max(s.length(), scratch.length * 2)];
+            s.getChars(0, s.length(), scratch, 0);
+            return scratch;
+        }
+
+        private void writeVarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                buf[n++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[n++] = (byte) v;
+        }
+
+        private void writeInt(int v) {
+            buf[n++] = (byte) (v >>> 24);
+            buf[n++] = (byte) (v >>> 16);
+            buf[n++] = (byte) (v >>> 8);
+            buf[n++] = (byte) v;
+        }
+
+        private void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buf.length - n) {
+                flush();
+                if (bytes.length > buf.length) {
+                    out.write(bytes);
+                    written += bytes.length;
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buf, n, bytes.length);
+            n += bytes.length;
+        }
+
+        private void flush() throws IOException {
+            out.write(buf, 0, n);
+            written += n;
+            n = 0;
+        }
+    }
+
+    // Memory-maps a token file and walks it with a cursor: next() decodes one record in place, lexemes
+    // are pool ids until lexeme() decodes (and caches) the string. No per-token objects are created.
+    public static final class Reader {
+
+        private final ByteBuffer map;
+        private final long tokenCount;
+        private final int poolOffset;
+        private final int[] poolStarts; // per id: offset of the entry's bytes
+        private final int[] poolLengths;
+        private final String[] poolStrings; // decoded on demand
+
+        private int pos;
+        private long index;
+        private TokenType type;
+        private long offset;
+        private int line;
+        private int column;
+        private int lexemeId;
+        private int reasonId; // id + 1, 0 = none
+
+        public Reader(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new IOException("Token file too large to map: " + path);
+                if (size < HEADER_SIZE + FOOTER_SIZE) throw new IOException("Not a BILI token file: " + path);
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            if (map.getInt(0) != MAGIC || map.getInt(map.limit() - 4) != MAGIC) {
+                throw new IOException("Not a BILI token file: " + path);
+            }
+            int version = map.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported token file version " + version + " (expected " + VERSION + "): " + path);
+            }
+            int footer = map.limit() - FOOTER_SIZE;
+            tokenCount = map.getLong(footer);
+            long pool = map.getLong(footer + 8);
+            int poolSize = map.getInt(footer + 16);
+            if (pool < HEADER_SIZE || pool > footer || poolSize < 0) throw new IOException("Corrupt token file: " + path);
+            poolOffset = (int) pool;
+
+            poolStarts = new int[poolSize];
+            poolLengths = new int[poolSize];
+            poolStrings = new String[poolSize];
+            pos = poolOffset;
+            for (int id = 0; id < poolSize; id++) {
+                int length = (int) readVarint();
+                poolStarts[id] = pos;
+                poolLengths[id] = length;
+                pos += length;
+                if (pos > footer) throw new IOException("Corrupt token file: " + path);
+            }
+            rewind();
+        }
+
+        public long getTokenCount() { return tokenCount; }
+        public int getPoolSize() { return poolStrings.length; }
+
+        // back to before the first token
+        public void rewind() {
+            pos = HEADER_SIZE;
+            index = 0;
+            offset = 0;
+            line = 0;
+            type = null;
+        }
+
+        // advance to the next token; false at the end
+        public boolean next() {
+            if (index == tokenCount) return false;
+            type = TYPES[(int) readVarint()];
+            offset += readVarint();
+            line += (int) readVarint();
+            column = (int) readVarint();
+            lexemeId = (int) readVarint();
+            reasonId = type == TokenType.ERROR ? (int) readVarint() : 0;
+            index++;
+            return true;
+        }
+
+        public TokenType type() { return type; }
+        public long offset() { return offset; }
+        public int line() { return line; }
+        public int column() { return column; }
+        public int lexemeId() { return lexemeId; } // equal ids <=> equal lexemes
+        public String lexeme() { return poolEntry(lexemeId); }
+        public String reason() { return reasonId == 0 ? null : poolEntry(reasonId - 1); }
+
+        // the current token as a Token object
+        public Token token() {
+            return new Token(type, lexeme(), line, column, reason());
+        }
+
+        public String poolEntry(int id) {
+            String s = poolStrings[id];
+            if (s == null) {
+                byte[] utf8 = new byte[poolLengths[id]];
+                map.get(poolStarts[id], utf8);
+                s = new String(utf8, StandardCharsets.UTF_8);
+                poolStrings[id] = s;
+            }
+            return s;
+        }
+
+        private long readVarint() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = map.get(pos++);
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package Scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Scanner counters: a count per token kind (int[] by ordinal: comments and whitespace runs included),
+// chars & bytes scanned, lines processed and scan wall time. Statistics of chunks or files add up with add().
+// Exported as JSON or CSV (one row per run) to track scanner throughput across releases.
+public class TokenStatistics {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int COMMENT = TokenType.COMMENT.ordinal();
+    private static final int WHITESPACE = TokenType.WHITESPACE.ordinal();
+    private static final int EOF = TokenType.EOF.ordinal();
+
+    private final int[] counts = new int[TYPES.length];
+    private long chars; // chars scanned
+    private long bytes; // input size in bytes, 0 if not known (in-memory input)
+    private int linesProcessed;
+    private long nanos; // scan wall time
+
+    void count(TokenType type) {
+        counts[type.ordinal()]++;
+    }
+
+    void count(TokenType type, int n) {
+        counts[type.ordinal()] += n;
+    }
+
+    void setChars(long chars) { this.chars = chars; }
+    void setLinesProcessed(int linesProcessed) { this.linesProcessed = linesProcessed; }
+    void setNanos(long nanos) { this.nanos = nanos; }
+    public void setBytes(long bytes) { this.bytes = bytes; }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        chars = 0;
+        bytes = 0;
+        linesProcessed = 0;
+        nanos = 0;
+    }
+
+    // fold in the statistics of another chunk or file (times add up: set the wall time afterwards if
+    // the parts ran concurrently)
+    public void add(TokenStatistics other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        chars += other.chars;
+        bytes += other.bytes;
+        linesProcessed += other.linesProcessed;
+        nanos += other.nanos;
+    }
+
+    public int getCount(TokenType type) { return counts[type.ordinal()]; }
+    public int getComments() { return counts[COMMENT]; }
+    public int getWhitespaceRuns() { return counts[WHITESPACE]; }
+    public long getChars() { return chars; }
+    public long getBytes() { return bytes; }
+    public int getLinesProcessed() { return linesProcessed; }
+    public long getNanos() { return nanos; }
+
+    // tokens handed to the parser: everything but comments & whitespace
+    public int getTotal() {
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (isSignificant(i)) total += counts[i];
+        }
+        return total;
+    }
+
+    public double getTokensPerSecond() {
+        return nanos == 0 ? 0 : getTotal() * 1e9 / nanos;
+    }
+
+    private static boolean isSignificant(int ordinal) {
+        return ordinal != COMMENT && ordinal != WHITESPACE && ordinal != EOF;
+    }
+
+    // Total tokens, count per token type (enum order), lines processed, comments removed, throughput
+    public void print() {
+        System.out.println("\nStatistics: ");
+
+        System.out.println("Total tokens: " + getTotal());
+
+        System.out.println("\nToken counts:");
+        for (int i = 0; i < counts.length; i++) {
+            if (isSignificant(i) && counts[i] > 0) {
+                System.out.printf("%s: %d%n", TYPES[i], counts[i]);
+            }
+        }
+
+        System.out.println("Lines processed: " + linesProcessed);
+        System.out.println("Comments removed: " + getComments());
+        System.out.println("Whitespace runs: " + getWhitespaceRuns());
+        System.out.printf(Locale.ROOT, "Scanned: %d chars%s in %.3f ms (%.0f tokens/s)%n",
+                chars, bytes > 0 ? " (" + bytes + " bytes)" : "", nanos / 1e6, getTokensPerSecond());
+    }
+
+    public String toJson() {
+        StringBuilder out = new StringBuilder("{");
+        out.append("\"tokens\": ").append(getTotal())
+                .append(", \"comments\": ").append(getComments())
+                .append(", \"whitespaceRuns\": ").append(getWhitespaceRuns())
+                .append(", \"chars\": ").append(chars)
+                .append(", \"bytes\": ").append(bytes)
+                .append(", \"lines\": ").append(linesProcessed)
+                .append(", \"nanos\": ").append(nanos)
+                .append(", \"tokensPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", getTokensPerSecond()))
+                .append(", \"counts\": {");
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) out.append(", ");
+            out.append('"').append(TYPES[i]).append("\": ").append(counts[i]);
+        }
+        return out.append("}}").toString();
+    }
+
+    public static String csvHeader() {
+        StringBuilder out = new StringBuilder("source,tokens,comments,whitespace_runs,chars,bytes,lines,nanos,tokens_per_second");
+        for (TokenType type : TYPES) out.append(',').append(type);
+        return out.toString();
+    }
+
+    // one CSV row; source labels the run (file name, "total", ...)
+    public String toCsvRow(String source) {
+        StringBuilder out = new StringBuilder(csvField(source));
+        out.append(',').append(getTotal())
+                .append(',').append(getComments())
+                .append(',').append(getWhitespaceRuns())
+                .append(',').append(chars)
+                .append(',').append(bytes)
+                .append(',').append(linesProcessed)
+                .append(',').append(nanos)
+                .append(',').append(String.format(Locale.ROOT, "%.1f", getTokensPerSecond()));
+        for (int count : counts) out.append(',').append(count);
+        return out.toString();
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    static String jsonString(String s) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') out.append('\\').append(c);
+            else if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+            else out.append(c);
+        }
+        return out.append('"').toString();
+    }
+
+    // write labelled statistics (e.g. one per file plus a total) as JSON or CSV, chosen by the file extension
+    public static void write(Path out, List<String> sources, List<TokenStatistics> statistics) throws IOException {
+        String name = out.getFileName().toString();
+        StringBuilder text = new StringBuilder();
+        if (name.endsWith(".csv")) {
+            text.append(csvHeader()).append('\n');
+            for (int i = 0; i < sources.size(); i++) {
+                text.append(statistics.get(i).toCsvRow(sources.get(i))).append('\n');
+            }
+        } else if (name.endsWith(".json")) {
+            text.append("[\n");
+            for (int i = 0; i < sources.size(); i++) {
+                String json = statistics.get(i).toJson();
+                text.append("  {\"source\": ").append(jsonString(sources.get(i))).append(", ").append(json, 1, json.length());
+                text.append(i + 1 < sources.size() ? ",\n" : "\n");
+            }
+            text.append("]\n");
+        } else {
+            throw new IllegalArgumentException("Statistics file must end in .json or .csv: " + out);
+        }
+        Files.writeString(out, text);
+    }
+}
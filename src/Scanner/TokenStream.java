@@ -0,0 +1,254 @@
+package Scanner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Compact token list: one entry is a type byte, start offset & length into the source and an error-reason
+// byte (~10 bytes per token instead of a Token + String). Lexemes are sliced from the source and line/col
+// looked up in the source's LineIndex on demand; get(i) builds the usual Token view. Streams of a scanner
+// that decodes literals also keep each INTEGER/FLOAT value (8 more bytes per token).
+public class TokenStream implements Iterable<Token> {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    static final int INITIAL_CAPACITY = 1024;
+
+    // error reasons are a small fixed set of messages: entries hold a 1-byte id into this table (0 = none)
+    private static final List<String> REASONS = new CopyOnWriteArrayList<>(Collections.singletonList(null));
+    private static final Map<String, Byte> REASON_IDS = new ConcurrentHashMap<>();
+
+    private char[] source; // scanned chars, never modified (an incremental edit swaps in a new array)
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private byte[] reasons; // error reason ids
+    private long[] values; // INTEGER value / FLOAT bits (Literals.NO_FLOAT: not exact), null if not decoded
+    private int size;
+    private LineIndex lines; // built on first line/col lookup unless the scanner already has one
+
+    TokenStream(char[] source) {
+        this(source, INITIAL_CAPACITY);
+    }
+
+    TokenStream(char[] source, int capacity) {
+        this(source, capacity, false);
+    }
+
+    TokenStream(char[] source, int capacity, boolean withValues) {
+        this.source = source;
+        this.types = new byte[Math.max(capacity, 1)];
+        this.starts = new int[types.length];
+        this.lengths = new int[types.length];
+        this.reasons = new byte[types.length];
+        this.values = withValues ? new long[types.length] : null;
+    }
+
+    void add(TokenType type, int start, int length, String reason) {
+        add(type, start, length, reason, 0);
+    }
+
+    void add(TokenType type, int start, int length, String reason, long value) {
+        if (size == types.length) grow();
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        reasons[size] = reasonId(reason);
+        if (values != null) values[size] = value;
+        size++;
+    }
+
+    // empty the stream for a new source, keeping its arrays (ManualScanner.scan)
+    void reset(char[] source, boolean withValues) {
+        this.source = source;
+        this.lines = null;
+        this.size = 0;
+        if (!withValues) values = null;
+        else if (values == null) values = new long[types.length];
+    }
+
+    boolean hasValues() {
+        return values != null;
+    }
+
+    // copy entries [from, to) of src (same source) to this stream starting at index dest; comments are dropped.
+    // Disjoint dest ranges may be filled concurrently. Returns the number of entries written.
+    int copyFrom(TokenStream src, int from, int to, int dest) {
+        int commentOrdinal = TokenType.COMMENT.ordinal();
+        int j = dest;
+        for (int i = from; i < to; i++) {
+            if (src.types[i] == commentOrdinal) continue;
+            types[j] = src.types[i];
+            starts[j] = src.starts[i];
+            lengths[j] = src.lengths[i];
+            reasons[j] = src.reasons[i];
+            if (values != null) values[j] = src.values[i];
+            j++;
+        }
+        return j - dest;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    // first index >= from whose token starts at or after offset (size if none)
+    int lowerBound(int from, int offset) {
+        int lo = from, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // incremental edit: replace entries [from, to) with the non-comment entries of middle (already in
+    // new-source coordinates) and move the tail [to, size) along, its starts shifted by offsetDelta
+    void splice(int from, int to, TokenStream middle, char[] newSource, LineIndex newLines, int offsetDelta) {
+        int commentOrdinal = TokenType.COMMENT.ordinal();
+        int inserted = 0;
+        for (int i = 0; i < middle.size; i++) {
+            if (middle.types[i] != commentOrdinal) inserted++;
+        }
+        int tail = size - to;
+        int tailStart = from + inserted;
+        while (types.length < tailStart + tail) grow();
+
+        System.arraycopy(types, to, types, tailStart, tail);
+        System.arraycopy(starts, to, starts, tailStart, tail);
+        System.arraycopy(lengths, to, lengths, tailStart, tail);
+        System.arraycopy(reasons, to, reasons, tailStart, tail);
+        if (values != null) System.arraycopy(values, to, values, tailStart, tail);
+        for (int i = tailStart, end = tailStart + tail; i < end; i++) {
+            starts[i] += offsetDelta;
+        }
+        copyFrom(middle, 0, middle.size, from);
+
+        source = newSource;
+        lines = newLines;
+        size = tailStart + tail;
+    }
+
+    char[] source() {
+        return source;
+    }
+
+    void setLineIndex(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    public LineIndex getLineIndex() {
+        if (lines == null) lines = LineIndex.of(source, source.length);
+        return lines;
+    }
+
+    private void grow() {
+        int capacity = types.length + (types.length >> 1) + 1;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        reasons = Arrays.copyOf(reasons, capacity);
+        if (values != null) values = Arrays.copyOf(values, capacity);
+    }
+
+    private static byte reasonId(String reason) {
+        if (reason == null) return 0;
+        Byte id = REASON_IDS.get(reason);
+        return id != null ? id : internReason(reason);
+    }
+
+    private static synchronized byte internReason(String reason) {
+        Byte id = REASON_IDS.get(reason);
+        if (id == null) {
+            if (REASONS.size() > 255) throw new IllegalStateException("Too many distinct error reasons");
+            REASONS.add(reason);
+            id = (byte) (REASONS.size() - 1);
+            REASON_IDS.put(reason, id);
+        }
+        return id;
+    }
+
+    public int size() { return size; }
+
+    public TokenType getType(int i) { return TYPES[types[check(i)]]; }
+    public int getStart(int i) { return starts[check(i)]; }
+    public int getLength(int i) { return lengths[check(i)]; }
+    public int getLine(int i) { return getLineIndex().line(starts[check(i)]); }
+    public int getColumn(int i) { return getLineIndex().column(starts[check(i)]); }
+    public String getReason(int i) { return REASONS.get(reasons[check(i)] & 0xFF); }
+
+    // lexeme of token i: shared text for fixed operators & keywords, otherwise a slice of the source
+    public String getLexeme(int i) {
+        TokenType type = getType(i);
+        String fixed = ScannerTables.LEXEME[type.ordinal()];
+        if (fixed != null) return fixed;
+        if (type.ordinal() <= TokenType.ELSE.ordinal() || type == TokenType.BOOLEAN) {
+            return Keywords.lexeme(Keywords.find(source, starts[i], lengths[i]));
+        }
+        return new String(source, starts[i], lengths[i]);
+    }
+
+    // literal values: stored ones if the scanner decoded them, else decoded from the source span
+    public long getIntValue(int i) {
+        expect(i, TokenType.INTEGER);
+        if (values != null && lengths[i] <= Literals.MAX_FAST_INTEGER_LENGTH) return values[i];
+        return Literals.integer(source, starts[i], lengths[i]);
+    }
+
+    public double getFloatValue(int i) {
+        expect(i, TokenType.FLOAT);
+        if (values != null && values[i] != Literals.NO_FLOAT) return Double.longBitsToDouble(values[i]);
+        return Literals.floating(source, starts[i], lengths[i]);
+    }
+
+    public String getStringValue(int i) {
+        expect(i, TokenType.STRING);
+        return Literals.string(source, starts[i], lengths[i]);
+    }
+
+    public char getCharValue(int i) {
+        expect(i, TokenType.CHARACTER);
+        return Literals.character(source, starts[i], lengths[i]);
+    }
+
+    private void expect(int i, TokenType literal) {
+        TokenType type = getType(i);
+        if (type != literal) throw new IllegalStateException(type + " token has no " + literal + " value");
+    }
+
+    // Token view of entry i, built on demand
+    public Token get(int i) {
+        Token token = new Token(getType(i), getLexeme(i), starts[i], getLineIndex(), getReason(i));
+        if (values != null) {
+            TokenType type = token.getType();
+            if ((type == TokenType.INTEGER && lengths[i] <= Literals.MAX_FAST_INTEGER_LENGTH)
+                    || (type == TokenType.FLOAT && values[i] != Literals.NO_FLOAT)) {
+                token.setValue(values[i]);
+            }
+        }
+        return token;
+    }
+
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<Token>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Token index " + i + " out of range (size " + size + ")");
+        return i;
+    }
+}